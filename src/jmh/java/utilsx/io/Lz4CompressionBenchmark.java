@@ -0,0 +1,202 @@
+package utilsx.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import utils.io.IOUtils;
+import utils.io.Lz4CompressOptions;
+import utils.io.Lz4Compressions;
+
+
+/**
+ * {@link Lz4Compressions}의 byte[] 블럭 API, {@link ByteBuffer} API, 그리고 스트림 API의
+ * 압축/해제 성능을 블럭 크기와 데이터 종류별로 측정한다.
+ * <p>
+ * 모든 벤치마크는 한번의 호출에서 {@link #DATA_SIZE} 바이트의 원본 데이터를 처리하므로
+ * 처리량(MB/s)은 ops/s에 {@link #DATA_SIZE}를 곱하여 구한다. 할당률은 '-prof gc' 옵션의
+ * gc.alloc.rate.norm (B/op) 항목으로 확인한다.
+ * <pre>
+ * gradle jmh -Pjmh.includes=Lz4CompressionBenchmark
+ * </pre>
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class Lz4CompressionBenchmark {
+	static final int DATA_SIZE = 16 * 1024 * 1024;
+	private static final int SINK_SIZE = 64 * 1024;
+	private static final long SEED = 0x5EED;
+
+	// JMH가 생성하는 코드에서 직접 설정하므로 public으로 선언한다.
+	@Param({"4096", "65536", "1048576", "4194304"})
+	public int blockSize;
+
+	/** 'compressible': JSON 형태의 레코드, 'random': 난수 데이터 (압축되지 않음). */
+	@Param({"compressible", "random"})
+	public String data;
+
+	private byte[] m_raw;
+
+	// byte[] 블럭 API 압축 결과
+	private byte[] m_blocks;
+	private int[] m_blockOffsets;
+
+	// ByteBuffer API 및 스트림 API 압축 결과 (두 API는 동일한 형식을 사용한다)
+	private ByteBuffer m_compressed;
+	private byte[] m_streamCompressed;
+
+	private byte[] m_rawOut;
+	private ByteBuffer m_rawOutBuffer;
+	private ByteBuffer m_compressedOutBuffer;
+	private byte[] m_sink;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		m_raw = generate(data, DATA_SIZE);
+
+		int nblocks = (DATA_SIZE + blockSize - 1) / blockSize;
+		m_blocks = new byte[nblocks * Lz4Compressions.maxCompressedBlockLength(blockSize)];
+		m_blockOffsets = new int[nblocks + 1];
+		for ( int i =0; i < nblocks; ++i ) {
+			int off = i * blockSize;
+			int len = Math.min(blockSize, DATA_SIZE - off);
+			m_blockOffsets[i+1] = m_blockOffsets[i]
+								+ Lz4Compressions.compressBlock(m_raw, off, len, m_blocks, m_blockOffsets[i]);
+		}
+
+		m_compressedOutBuffer = ByteBuffer.allocate(Lz4Compressions.maxCompressedLength(DATA_SIZE, blockSize));
+		m_compressed = Lz4Compressions.compress(ByteBuffer.wrap(m_raw), blockSize);
+		m_streamCompressed = IOUtils.toBytes(Lz4Compressions.compress(new ByteArrayInputStream(m_raw),
+																		newOptions()));
+
+		m_rawOut = new byte[DATA_SIZE];
+		m_rawOutBuffer = ByteBuffer.wrap(m_rawOut);
+		m_sink = new byte[SINK_SIZE];
+	}
+
+	/**
+	 * 블럭마다 결과 배열을 새로 할당하는 byte[] 블럭 API의 압축 성능.
+	 */
+	@Benchmark
+	public void compressBlockArray(Blackhole bh) {
+		for ( int off = 0; off < DATA_SIZE; off += blockSize ) {
+			bh.consume(Lz4Compressions.compressBlock(m_raw, off, Math.min(blockSize, DATA_SIZE - off)));
+		}
+	}
+
+	/**
+	 * 미리 할당된 배열에 결과를 기록하는 byte[] 블럭 API의 압축 성능.
+	 */
+	@Benchmark
+	public int compressBlockInto() {
+		int destOff = 0;
+		for ( int off = 0; off < DATA_SIZE; off += blockSize ) {
+			destOff += Lz4Compressions.compressBlock(m_raw, off, Math.min(blockSize, DATA_SIZE - off),
+													m_blocks, destOff);
+		}
+		return destOff;
+	}
+
+	@Benchmark
+	public int compressBuffer() {
+		m_compressedOutBuffer.clear();
+		return Lz4Compressions.compress(ByteBuffer.wrap(m_raw), m_compressedOutBuffer, blockSize);
+	}
+
+	@Benchmark
+	public long compressStream() throws IOException {
+		return drain(Lz4Compressions.compress(new ByteArrayInputStream(m_raw), newOptions()));
+	}
+
+	@Benchmark
+	public void decompressBlockArray(Blackhole bh) {
+		for ( int i =0; i < m_blockOffsets.length - 1; ++i ) {
+			bh.consume(Lz4Compressions.decompressBlock(m_blocks, m_blockOffsets[i]));
+		}
+	}
+
+	@Benchmark
+	public int decompressBlockInto() {
+		int destOff = 0;
+		for ( int i =0; i < m_blockOffsets.length - 1; ++i ) {
+			destOff += Lz4Compressions.decompressBlock(m_blocks, m_blockOffsets[i], m_rawOut, destOff);
+		}
+		return destOff;
+	}
+
+	@Benchmark
+	public int decompressBuffer() {
+		m_rawOutBuffer.clear();
+		return Lz4Compressions.decompress(m_compressed.duplicate(), m_rawOutBuffer);
+	}
+
+	@Benchmark
+	public long decompressStream() throws IOException {
+		return drain(Lz4Compressions.decompress(new ByteArrayInputStream(m_streamCompressed)));
+	}
+
+	private Lz4CompressOptions newOptions() {
+		return Lz4CompressOptions.create().blockSize(blockSize);
+	}
+
+	// 스트림의 모든 데이터를 재사용되는 버퍼로 읽어 버리고, 읽은 바이트 수를 반환한다.
+	private long drain(InputStream is) throws IOException {
+		try ( InputStream in = is ) {
+			long total = 0;
+			int nread;
+			while ( (nread = in.read(m_sink)) >= 0 ) {
+				total += nread;
+			}
+			return total;
+		}
+	}
+
+	static byte[] generate(String kind, int size) {
+		Random rand = new Random(SEED);
+		byte[] bytes = new byte[size];
+		switch ( kind ) {
+			case "random":
+				rand.nextBytes(bytes);
+				break;
+			case "compressible":
+				int off = 0;
+				for ( int id = 0; off < size; ++id ) {
+					byte[] record = String.format("{\"id\":%d,\"name\":\"user-%d\",\"status\":\"%s\","
+												+ "\"score\":%.3f,\"city\":\"Daejeon\"}%n",
+												id, rand.nextInt(1000),
+												rand.nextBoolean() ? "active" : "inactive",
+												rand.nextDouble()).getBytes();
+					int len = Math.min(record.length, size - off);
+					System.arraycopy(record, 0, bytes, off, len);
+					off += len;
+				}
+				break;
+			default:
+				throw new IllegalArgumentException("unknown data kind: " + kind);
+		}
+		return bytes;
+	}
+}
@@ -0,0 +1,283 @@
+package utils.config;
+
+import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * 설정 노드의 하위 트리를 Java 객체로 변환한다.
+ * <p>
+ * 대상 클래스는 인자가 없는 생성자를 가져야 하며, static, final, transient가 아닌 모든 필드가
+ * 설정된다. 필드에 해당하는 설정 이름은 필드 이름이며, 필드 이름이 'm_'으로 시작하는 경우는
+ * 이를 제외한 이름을 사용한다. 설정 노드에 해당 이름의 하위 노드가 없는 필드는 생성자가 설정한
+ * 값을 그대로 유지한다.
+ * <p>
+ * 지원하는 필드 타입은 다음과 같다.
+ * <ul>
+ * 	<li>기본 타입과 그 wrapper 타입, {@link String}, enum 타입.
+ * 	<li>{@link File}: 설정 값을 파일 경로로 사용한다.
+ * 	<li>{@link Duration}: {@link ConfigNode#asDuration()} 형식의 설정 값.
+ * 	<li>기본 타입 배열: {@link ConfigNode#getAsIntArray()} 등을 이용한다.
+ * 	<li>지원되는 타입의 배열, {@code List<T>}, {@code Map<String,T>}.
+ * 	<li>{@link ConfigNode}: 해당 설정 노드를 그대로 설정한다.
+ * 	<li>그 밖의 클래스: 하위 map 노드를 재귀적으로 변환한다.
+ * </ul>
+ * 클래스별 생성자와 필드 접근은 처음 사용될 때 {@link MethodHandle}로 한번 준비되어
+ * 캐시되므로, 이후의 변환에서는 reflection 탐색이 수행되지 않는다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+public final class ConfigBinder {
+	private static final ClassValue<Binding> s_bindings = new ClassValue<Binding>() {
+		@Override
+		protected Binding computeValue(Class<?> type) {
+			return new Binding(type);
+		}
+	};
+
+	private ConfigBinder() {
+		throw new AssertionError("Should not be called: class=" + ConfigBinder.class.getName());
+	}
+
+	/**
+	 * 주어진 설정 노드를 주어진 클래스의 객체로 변환한다.
+	 *
+	 * @param <T>	변환 대상 타입.
+	 * @param node	map 설정 노드.
+	 * @param type	변환 대상 클래스.
+	 * @return	변환된 객체.
+	 * @throws IllegalArgumentException	대상 클래스가 지원되지 않는 형식인 경우.
+	 * @throws IllegalStateException	설정 값을 필드 타입으로 변환할 수 없거나, 하위 필드의 타입이
+	 * 									지원되지 않는 경우.
+	 */
+	public static <T> T bind(ConfigNode node, Class<T> type) {
+		Preconditions.checkArgument(node != null, "ConfigNode is null");
+		Preconditions.checkArgument(type != null, "target class is null");
+		Preconditions.checkArgument(!node.isMissing(), "non-existent Config: path=%s", node.getPath());
+
+		return type.cast(read(node, type, type));
+	}
+
+	private static Object read(ConfigNode node, Class<?> type, Type genericType) {
+		if ( type == String.class ) {
+			return node.asString();
+		}
+		else if ( type == int.class || type == Integer.class ) {
+			return node.asInt();
+		}
+		else if ( type == long.class || type == Long.class ) {
+			return node.asLong();
+		}
+		else if ( type == boolean.class || type == Boolean.class ) {
+			return node.asBoolean();
+		}
+		else if ( type == double.class || type == Double.class ) {
+			return node.asDouble();
+		}
+		else if ( type == float.class || type == Float.class ) {
+			return node.asFloat();
+		}
+		else if ( type == short.class || type == Short.class ) {
+			return node.asShort();
+		}
+		else if ( type == byte.class || type == Byte.class ) {
+			return node.asByte();
+		}
+		else if ( type == File.class ) {
+			return node.asFile();
+		}
+		else if ( type == Duration.class ) {
+			return Duration.ofMillis(node.asDuration());
+		}
+		else if ( type.isEnum() ) {
+			return readEnum(node, type);
+		}
+		else if ( type == int[].class ) {
+			return node.getAsIntArray();
+		}
+		else if ( type == long[].class ) {
+			return node.getAsLongArray();
+		}
+		else if ( type == float[].class ) {
+			return node.getAsFloatArray();
+		}
+		else if ( type == double[].class ) {
+			return node.getAsDoubleArray();
+		}
+		else if ( type == boolean[].class ) {
+			return node.getAsBooleanArray();
+		}
+		else if ( type.isArray() ) {
+			Class<?> elmType = type.getComponentType();
+			Object arr = Array.newInstance(elmType, node.size());
+			for ( int i =0; i < node.size(); ++i ) {
+				Array.set(arr, i, read(node.get(i), elmType, elmType));
+			}
+			return arr;
+		}
+		else if ( type == List.class ) {
+			Type elmType = getTypeArgument(genericType, 0);
+			Class<?> elmClass = toClass(elmType);
+			List<Object> list = new ArrayList<>(node.size());
+			for ( int i =0; i < node.size(); ++i ) {
+				list.add(read(node.get(i), elmClass, elmType));
+			}
+			return Collections.unmodifiableList(list);
+		}
+		else if ( type == Map.class ) {
+			Preconditions.checkArgument(getTypeArgument(genericType, 0) == String.class,
+										"Map key should be String: type=%s", genericType);
+			Type valueType = getTypeArgument(genericType, 1);
+			Class<?> valueClass = toClass(valueType);
+			Map<String,Object> map = new LinkedHashMap<>();
+			for ( String name: node.names() ) {
+				map.put(name, read(node.get(name), valueClass, valueType));
+			}
+			return Collections.unmodifiableMap(map);
+		}
+		else if ( type == ConfigNode.class ) {
+			return node;
+		}
+		else {
+			return s_bindings.get(type).bind(node);
+		}
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Object readEnum(ConfigNode node, Class<?> type) {
+		return Enum.valueOf((Class<? extends Enum>)type, node.asString());
+	}
+
+	private static Type getTypeArgument(Type genericType, int idx) {
+		Preconditions.checkArgument(genericType instanceof ParameterizedType,
+									"raw collection type is not supported: type=%s", genericType);
+		return ((ParameterizedType)genericType).getActualTypeArguments()[idx];
+	}
+
+	private static Class<?> toClass(Type type) {
+		if ( type instanceof Class ) {
+			return (Class<?>)type;
+		}
+		else if ( type instanceof ParameterizedType ) {
+			return (Class<?>)((ParameterizedType)type).getRawType();
+		}
+		else {
+			throw new IllegalArgumentException("unsupported element type: " + type);
+		}
+	}
+
+	/**
+	 * 한 클래스에 대해 미리 준비된 생성자와 필드 setter들.
+	 */
+	private static final class Binding {
+		private static final MethodType CTOR_TYPE = MethodType.methodType(Object.class);
+		private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class,
+																			Object.class);
+
+		private final Class<?> m_type;
+		private final MethodHandle m_ctor;
+		private final FieldBinding[] m_fields;
+
+		Binding(Class<?> type) {
+			Preconditions.checkArgument(!type.isInterface() && !Modifier.isAbstract(type.getModifiers()),
+										"cannot instantiate: class=%s", type.getName());
+
+			m_type = type;
+			try {
+				MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+				m_ctor = lookup.findConstructor(type, MethodType.methodType(void.class)).asType(CTOR_TYPE);
+
+				List<FieldBinding> fields = new ArrayList<>();
+				for ( Class<?> cls = type; cls != null && cls != Object.class; cls = cls.getSuperclass() ) {
+					MethodHandles.Lookup clsLookup = (cls == type)
+													? lookup
+													: MethodHandles.privateLookupIn(cls, MethodHandles.lookup());
+					for ( Field field: cls.getDeclaredFields() ) {
+						int mods = field.getModifiers();
+						if ( Modifier.isStatic(mods) || Modifier.isFinal(mods) || Modifier.isTransient(mods)
+							|| field.isSynthetic() ) {
+							continue;
+						}
+
+						MethodHandle setter = clsLookup.unreflectSetter(field).asType(SETTER_TYPE);
+						fields.add(new FieldBinding(toConfigName(field.getName()), field.getType(),
+													field.getGenericType(), setter));
+					}
+				}
+				m_fields = fields.toArray(new FieldBinding[0]);
+			}
+			catch ( NoSuchMethodException e ) {
+				throw new IllegalArgumentException("no default constructor: class=" + type.getName());
+			}
+			catch ( IllegalAccessException e ) {
+				throw new IllegalArgumentException("inaccessible class: class=" + type.getName(), e);
+			}
+		}
+
+		Object bind(ConfigNode node) {
+			Preconditions.checkState(node.isMap(), "Not MAP node: path=%s, target=%s", node.getPath(),
+									m_type.getName());
+
+			try {
+				Object obj = (Object)m_ctor.invokeExact();
+				for ( FieldBinding field: m_fields ) {
+					ConfigNode child = node.get(field.m_name);
+					if ( !child.isMissing() ) {
+						Object value;
+						try {
+							value = read(child, field.m_type, field.m_genericType);
+						}
+						catch ( IllegalStateException e ) {
+							throw e;
+						}
+						catch ( RuntimeException e ) {
+							throw new IllegalStateException("fails to bind config: path=" + child.getPath()
+															+ ", type=" + field.m_type.getName(), e);
+						}
+						field.m_setter.invokeExact(obj, value);
+					}
+				}
+				return obj;
+			}
+			catch ( RuntimeException | Error e ) {
+				throw e;
+			}
+			catch ( Throwable e ) {
+				throw new IllegalStateException("fails to create object: class=" + m_type.getName(), e);
+			}
+		}
+
+		private static String toConfigName(String fieldName) {
+			return (fieldName.startsWith("m_") && fieldName.length() > 2) ? fieldName.substring(2)
+																			: fieldName;
+		}
+	}
+
+	private static final class FieldBinding {
+		private final String m_name;
+		private final Class<?> m_type;
+		private final Type m_genericType;
+		private final MethodHandle m_setter;
+
+		FieldBinding(String name, Class<?> type, Type genericType, MethodHandle setter) {
+			m_name = name;
+			m_type = type;
+			m_genericType = genericType;
+			m_setter = setter;
+		}
+	}
+}
@@ -0,0 +1,113 @@
+package utils.config;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * 설정 트리의 노드 이름에서 해당 이름을 갖는 노드들로의 색인.
+ * <p>
+ * 색인은 루트 노드부터 map 노드들의 하위 노드를 따라 모든 노드를 한번 방문하여 생성되며,
+ * 루트 노드는 빈 문자열("") 이름으로 색인된다. 배열 노드의 원소들은 이름이 없으므로 색인되지 않는다.
+ * 생성된 색인은 변경되지 않으므로 여러 쓰레드에서 동시에 사용할 수 있다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+public final class ConfigNameIndex {
+	private final Map<String,Set<ConfigNode>> m_index;
+	private final int m_nodeCount;
+
+	private ConfigNameIndex(Map<String,Set<ConfigNode>> index, int nodeCount) {
+		m_index = index;
+		m_nodeCount = nodeCount;
+	}
+
+	/**
+	 * 주어진 루트 노드 이하의 모든 노드에 대한 이름 색인을 생성한다.
+	 *
+	 * @param root	설정 트리의 루트 노드.
+	 * @return	이름 색인.
+	 */
+	public static ConfigNameIndex build(ConfigNode root) {
+		Preconditions.checkArgument(root != null, "root ConfigNode is null");
+
+		Map<String,Set<ConfigNode>> index = new HashMap<>();
+		int[] count = new int[] {0};
+		visit(root, (name, node) -> {
+			index.computeIfAbsent(name, k -> new HashSet<>(2)).add(node);
+			++count[0];
+		});
+		index.replaceAll((name, nodes) -> Collections.unmodifiableSet(nodes));
+
+		return new ConfigNameIndex(index, count[0]);
+	}
+
+	/**
+	 * 색인을 생성하지 않고 주어진 루트 노드 이하에서 주어진 이름을 갖는 노드들을 찾는다.
+	 *
+	 * @param root	설정 트리의 루트 노드.
+	 * @param name	찾을 노드 이름.
+	 * @return	해당 이름을 갖는 노드 집합.
+	 */
+	public static Set<ConfigNode> scan(ConfigNode root, String name) {
+		Set<ConfigNode> found = new HashSet<>();
+		visit(root, (n, node) -> {
+			if ( n.equals(name) ) {
+				found.add(node);
+			}
+		});
+
+		return found;
+	}
+
+	/**
+	 * 주어진 이름을 갖는 노드들을 반환한다.
+	 *
+	 * @param name	노드 이름.
+	 * @return	해당 이름을 갖는 노드들의 변경 불가능한 집합. 해당 노드가 없는 경우는 빈 집합.
+	 */
+	public Set<ConfigNode> find(String name) {
+		return m_index.getOrDefault(name, Collections.emptySet());
+	}
+
+	/**
+	 * 색인된 전체 노드 수를 반환한다.
+	 *
+	 * @return	노드 수.
+	 */
+	public int getNodeCount() {
+		return m_nodeCount;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("ConfigNameIndex[names=%d, nodes=%d]", m_index.size(), m_nodeCount);
+	}
+
+	// 루트 노드부터 너비 우선으로 모든 노드를 방문한다.
+	private static void visit(ConfigNode root, BiConsumer<String,ConfigNode> visitor) {
+		ArrayDeque<String> names = new ArrayDeque<>();
+		ArrayDeque<ConfigNode> nodes = new ArrayDeque<>();
+		names.add("");
+		nodes.add(root);
+
+		while ( !nodes.isEmpty() ) {
+			String name = names.poll();
+			ConfigNode node = nodes.poll();
+			visitor.accept(name, node);
+
+			if ( node.isMap() ) {
+				for ( String childName: node.names() ) {
+					names.add(childName);
+					nodes.add(node.get(childName));
+				}
+			}
+		}
+	}
+}
@@ -1,16 +1,11 @@
 package utils.config;
 
 import java.io.File;
-import java.util.Arrays;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.Lists;
-import com.google.common.collect.Sets;
 
-import utils.Tuple;
 import utils.UnitUtils;
 
 /**
@@ -127,12 +122,7 @@ public interface ConfigNode {
 	public default int[] getAsIntArray() {
 		int[] values = new int[size()];
 		for ( int i =0; i < values.length; ++i ) {
-			Object elm = get(i);
-			if ( !(elm instanceof Number) ) {
-				throw new IllegalStateException();
-			}
-			
-			values[i] = ((Number)elm).intValue();
+			values[i] = get(i).asInt();
 		}
 		
 		return values;
@@ -141,12 +131,7 @@ public interface ConfigNode {
 	public default long[] getAsLongArray() {
 		long[] values = new long[size()];
 		for ( int i =0; i < values.length; ++i ) {
-			Object elm = get(i);
-			if ( !(elm instanceof Number) ) {
-				throw new IllegalStateException();
-			}
-			
-			values[i] = ((Number)elm).longValue();
+			values[i] = get(i).asLong();
 		}
 		
 		return values;
@@ -155,12 +140,7 @@ public interface ConfigNode {
 	public default float[] getAsFloatArray() {
 		float[] values = new float[size()];
 		for ( int i =0; i < values.length; ++i ) {
-			Object elm = get(i);
-			if ( !(elm instanceof Number) ) {
-				throw new IllegalStateException();
-			}
-			
-			values[i] = ((Number)elm).floatValue();
+			values[i] = get(i).asFloat();
 		}
 		
 		return values;
@@ -173,12 +153,7 @@ public interface ConfigNode {
 		
 		double[] values = new double[size()];
 		for ( int i =0; i < values.length; ++i ) {
-			Object elm = get(i);
-			if ( !(elm instanceof Number) ) {
-				throw new IllegalStateException(getPath());
-			}
-			
-			values[i] = ((Number)elm).doubleValue();
+			values[i] = get(i).asDouble();
 		}
 		
 		return values;
@@ -187,12 +162,7 @@ public interface ConfigNode {
 	public default boolean[] getAsBooleanArray() {
 		boolean[] values = new boolean[size()];
 		for ( int i =0; i < values.length; ++i ) {
-			Object elm = get(i);
-			if ( !(elm instanceof Boolean) ) {
-				throw new IllegalStateException();
-			}
-			
-			values[i] = ((Boolean)elm).booleanValue();
+			values[i] = get(i).asBoolean();
 		}
 		
 		return values;
@@ -206,98 +176,50 @@ public interface ConfigNode {
 	public int size();
 	public ConfigNode get(int index);
 	
+	/**
+	 * 이 노드의 하위 트리를 주어진 클래스의 객체로 변환한다.
+	 * 
+	 * @param <T>	변환 대상 타입.
+	 * @param type	변환 대상 클래스.
+	 * @return	변환된 객체.
+	 * @see ConfigBinder
+	 */
+	public default <T> T bind(Class<T> type) {
+		return ConfigBinder.bind(this, type);
+	}
+	
 	public default File getAsFile() {
 		return new File(asString());
 	}
 	
+	/**
+	 * 설정 트리에서 주어진 이름을 갖는 노드들을 찾는다.
+	 * <p>
+	 * 설정 객체가 이름 색인을 제공하는 경우는 이를 이용한다.
+	 * 
+	 * @param name	노드 이름.
+	 * @return	해당 이름을 갖는 노드 집합.
+	 */
 	public default Set<ConfigNode> findConfigByName(String name) {
-		Set<ConfigNode> found = Sets.newHashSet();
-		
-		List<Tuple<String,ConfigNode>> remains = Lists.newArrayList();
-		remains.add(Tuple.of("", getRoot()));
-		
-		while ( !remains.isEmpty() ) {
-			Tuple<String,ConfigNode> tuple = remains.remove(0);
-			if ( tuple._1.equals(name) ) {
-				found.add(tuple._2);
-			}
-			
-			if ( tuple._2.isMap() ) {
-				ConfigNode map = tuple._2;
-				tuple._2.names().stream()
-					.forEach(n -> remains.add(Tuple.of(n,map.get(n))));
-			}
-		}
-		
-		return found;
+		Configuration config = getConfiguration();
+		return (config != null) ? config.findConfigByName(name)
+								: ConfigNameIndex.scan(getRoot(), name);
+	}
+	
+	/**
+	 * 이 노드에서 시작하여 주어진 경로에 해당하는 노드를 찾는다.
+	 * <p>
+	 * 경로 형식은 {@link ConfigPath}를 참고한다.
+	 * 
+	 * @param path	경로 문자열.
+	 * @return	경로에 해당하는 노드. 해당 노드가 없는 경우는 {@link MissingConfigNode}.
+	 */
+	public default ConfigNode traverse(String path) {
+		return ConfigPath.compile(path).resolve(this);
 	}
 	
-	public default ConfigNode traverse(String path) {
-		String[] parts = Arrays.stream(path.split("/"))
-								.map(String::trim)
-								.toArray(sz -> new String[sz]);
-
-		ConfigNode current = (ConfigNode)this;
-		int idx = 0;
-		String head = parts[0];
-		if ( head.length() == 0 ) {
-			current = getRoot();
-			++idx;
-		}
-		else if ( head.startsWith("@") ) {
-			Set<ConfigNode> founds = findConfigByName(head.substring(1));
-			if ( founds.size() == 1 ) {
-				current = founds.iterator().next();
-				++idx;
-			}
-			else if ( founds.size() == 0 ) {
-				return new MissingConfigNode(getConfiguration(), path);
-			}
-			else {
-				throw new IllegalArgumentException("ambiguous state id=" + head);
-			}
-		}
-
-		for (; idx < parts.length; ++idx ) {
-			if ( parts[idx].equals("..") ) {
-				current = current.getParent();
-				if ( current == null ) {
-					return new MissingConfigNode(getConfiguration(), path);
-				}
-			}
-			else if ( parts[idx].equals(".") ) { }
-			else {
-				String linkExpr = parts[idx];
-				
-				while ( linkExpr.length() > 0 ) {
-					int begin = linkExpr.indexOf('[');
-					if ( begin < 0 ) {
-						current = current.get(linkExpr);
-						if ( current == null ) {
-							return new MissingConfigNode(getConfiguration(), path);
-						}
-						break;
-					}
-					else {
-						String member = linkExpr.substring(0, begin);
-						current = current.get(member);
-						if ( current == null ) {
-							return new MissingConfigNode(getConfiguration(), path);
-						}
-						
-						int end = linkExpr.indexOf(']');
-						if ( end < 0 ) {
-							throw new IllegalArgumentException("unmatched []: path=" + path);
-						}
-						String idxStr = linkExpr.substring(begin+1, end);
-						current = current.get(Integer.parseInt(idxStr));
-						linkExpr = linkExpr.substring(end+1);
-					}
-				}
-			}
-		}
-		
-		return current;
+	public default ConfigNode traverse(ConfigPath path) {
+		return path.resolve(this);
 	}
 	
 	public static String toPath(String parentPath, String memberName) {
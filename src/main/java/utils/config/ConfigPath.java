@@ -0,0 +1,222 @@
+package utils.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * 미리 분석된 설정 노드 경로.
+ * <p>
+ * 경로 문자열은 '/'로 구분된 단계들로 구성되며, 각 단계는 다음 중 하나이다.
+ * <ul>
+ * 	<li>{@code name}: 주어진 이름의 하위 노드.
+ * 	<li>{@code name[idx]}: 주어진 이름의 배열 노드의 idx번째 원소. {@code name[i][j]}와 같이 연속될 수 있다.
+ * 	<li>{@code ..}: 상위 노드.
+ * 	<li>{@code .}: 현재 노드.
+ * </ul>
+ * 경로가 '/'로 시작하면 루트 노드부터, '@name'으로 시작하면 설정 트리에서 유일하게
+ * 'name'이라는 이름을 갖는 노드부터 탐색을 시작한다. 그렇지 않은 경우는 주어진 노드부터 시작한다.
+ * <p>
+ * 경로 분석은 {@link #compile(String)} 호출시 한번만 수행되며, 분석된 경로 객체는
+ * 여러 쓰레드에서 반복하여 사용할 수 있다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+public final class ConfigPath {
+	private static final int MAX_CACHED_PATHS = 4096;
+	private static final Cache<String,ConfigPath> s_compiled = CacheBuilder.newBuilder()
+																		.maximumSize(MAX_CACHED_PATHS)
+																		.build();
+
+	private static final int ROOT = 0;
+	private static final int ANCHOR = 1;
+	private static final int PARENT = 2;
+	private static final int MEMBER = 3;
+	private static final int INDEX = 4;
+
+	private final String m_path;
+	private final int[] m_ops;
+	private final String[] m_names;		// ANCHOR, MEMBER 단계의 이름
+	private final int[] m_indexes;		// INDEX 단계의 배열 위치
+
+	private ConfigPath(String path, int[] ops, String[] names, int[] indexes) {
+		m_path = path;
+		m_ops = ops;
+		m_names = names;
+		m_indexes = indexes;
+	}
+
+	/**
+	 * 주어진 경로 문자열을 분석한 경로 객체를 반환한다.
+	 * <p>
+	 * 최근에 분석된 경로들은 캐시되므로 동일한 경로 문자열에 대해서는 같은 객체가 반환될 수 있다.
+	 *
+	 * @param path	경로 문자열.
+	 * @return	분석된 경로 객체.
+	 * @throws IllegalArgumentException	경로 형식이 올바르지 않은 경우.
+	 */
+	public static ConfigPath compile(String path) {
+		Preconditions.checkArgument(path != null, "ConfigPath is null");
+
+		ConfigPath compiled = s_compiled.getIfPresent(path);
+		if ( compiled == null ) {
+			compiled = parse(path);
+			s_compiled.put(path, compiled);
+		}
+		return compiled;
+	}
+
+	/**
+	 * 경로 문자열을 반환한다.
+	 *
+	 * @return	경로 문자열.
+	 */
+	public String getPath() {
+		return m_path;
+	}
+
+	/**
+	 * 주어진 노드에서 시작하여 경로에 해당하는 노드를 찾는다.
+	 *
+	 * @param start	탐색 시작 노드.
+	 * @return	경로에 해당하는 노드. 해당 노드가 없는 경우는 {@link MissingConfigNode}.
+	 * @throws IllegalArgumentException	'@name' 이름을 갖는 노드가 여러 개인 경우.
+	 */
+	public ConfigNode resolve(ConfigNode start) {
+		ConfigNode current = start;
+		for ( int i =0; i < m_ops.length; ++i ) {
+			switch ( m_ops[i] ) {
+				case ROOT:
+					current = start.getRoot();
+					break;
+				case ANCHOR:
+					Set<ConfigNode> founds = start.findConfigByName(m_names[i]);
+					if ( founds.size() == 0 ) {
+						return new MissingConfigNode(start.getConfiguration(), m_path);
+					}
+					else if ( founds.size() > 1 ) {
+						throw new IllegalArgumentException("ambiguous state id=@" + m_names[i]);
+					}
+					current = founds.iterator().next();
+					break;
+				case PARENT:
+					current = current.getParent();
+					break;
+				case MEMBER:
+					current = current.get(m_names[i]);
+					break;
+				case INDEX:
+					current = current.get(m_indexes[i]);
+					break;
+				default:
+					throw new AssertionError();
+			}
+			if ( current == null ) {
+				return new MissingConfigNode(start.getConfiguration(), m_path);
+			}
+		}
+
+		return current;
+	}
+
+	@Override
+	public String toString() {
+		return m_path;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if ( this == obj ) {
+			return true;
+		}
+		else if ( obj == null || obj.getClass() != ConfigPath.class ) {
+			return false;
+		}
+
+		return m_path.equals(((ConfigPath)obj).m_path);
+	}
+
+	@Override
+	public int hashCode() {
+		return m_path.hashCode();
+	}
+
+	private static ConfigPath parse(String path) {
+		Parser parser = new Parser(path);
+
+		String[] parts = path.split("/");
+		for ( int idx = 0; idx < parts.length; ++idx ) {
+			String part = parts[idx].trim();
+			if ( idx == 0 && part.length() == 0 ) {
+				parser.add(ROOT, null, 0);
+			}
+			else if ( idx == 0 && part.startsWith("@") ) {
+				parser.add(ANCHOR, part.substring(1), 0);
+			}
+			else if ( part.equals("..") ) {
+				parser.add(PARENT, null, 0);
+			}
+			else if ( part.equals(".") ) { }
+			else {
+				parser.parseLink(part);
+			}
+		}
+		// "/"와 같이 분리된 단계가 없는 경우는 루트 노드를 의미한다.
+		if ( parts.length == 0 ) {
+			parser.add(ROOT, null, 0);
+		}
+
+		return parser.build();
+	}
+
+	private static final class Parser {
+		private final String m_path;
+		private final List<Integer> m_ops = new ArrayList<>();
+		private final List<String> m_names = new ArrayList<>();
+		private final List<Integer> m_indexes = new ArrayList<>();
+
+		Parser(String path) {
+			m_path = path;
+		}
+
+		void add(int op, String name, int index) {
+			m_ops.add(op);
+			m_names.add(name);
+			m_indexes.add(index);
+		}
+
+		// 'name', 'name[i]', 'name[i][j]' 형태의 단계를 분석한다.
+		void parseLink(String linkExpr) {
+			boolean first = true;
+			while ( linkExpr.length() > 0 ) {
+				int begin = linkExpr.indexOf('[');
+				String member = (begin < 0) ? linkExpr : linkExpr.substring(0, begin);
+				if ( first || member.length() > 0 ) {
+					add(MEMBER, member, 0);
+				}
+				if ( begin < 0 ) {
+					break;
+				}
+
+				int end = linkExpr.indexOf(']', begin);
+				if ( end < 0 ) {
+					throw new IllegalArgumentException("unmatched []: path=" + m_path);
+				}
+				add(INDEX, null, Integer.parseInt(linkExpr.substring(begin+1, end).trim()));
+
+				linkExpr = linkExpr.substring(end+1);
+				first = false;
+			}
+		}
+
+		ConfigPath build() {
+			return new ConfigPath(m_path, m_ops.stream().mapToInt(v -> v).toArray(),
+									m_names.toArray(new String[0]),
+									m_indexes.stream().mapToInt(v -> v).toArray());
+		}
+	}
+}
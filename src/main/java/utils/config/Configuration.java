@@ -3,6 +3,7 @@ package utils.config;
 import java.io.File;
 import java.io.IOException;
 import java.util.Properties;
+import java.util.Set;
 
 /**
  * 
@@ -18,5 +19,21 @@ public interface Configuration {
 		return getRoot().traverse(path);
 	}
 	
+	public default ConfigNode traverse(ConfigPath path) {
+		return getRoot().traverse(path);
+	}
+	
+	/**
+	 * 설정 트리에서 주어진 이름을 갖는 노드들을 찾는다.
+	 * <p>
+	 * 기본 구현은 호출될 때마다 설정 트리 전체를 탐색한다.
+	 * 
+	 * @param name	노드 이름.
+	 * @return	해당 이름을 갖는 노드 집합.
+	 */
+	public default Set<ConfigNode> findConfigByName(String name) {
+		return ConfigNameIndex.scan(getRoot(), name);
+	}
+	
 	public void write(Object value, File file) throws IOException;
 }
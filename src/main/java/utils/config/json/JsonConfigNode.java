@@ -1,13 +1,14 @@
 package utils.config.json;
 
+import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
-import org.apache.commons.text.StringSubstitutor;
-
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
@@ -22,15 +23,50 @@ import utils.config.MissingConfigNode;
  */
 public class JsonConfigNode implements ConfigNode {
 	private final JsonConfiguration m_config;
+	private final JsonConfiguration.TreeState m_state;	// 이 노드가 속한 설정 트리의 상태
 	private final ConfigNode m_parent;
 	private final String m_path;
-	private final JsonElement m_elm;
+	private volatile JsonElement m_elm;
+	private Supplier<JsonElement> m_loader;		// 지연 적재 노드의 원소 적재자 (적재 후에는 null)
+	private final JsonSectionIndex m_sections;	// 지연 적재 루트 노드의 최상위 section 색인
+	
+	// 하위 노드 캐시. 적재된 Gson 트리는 변경되지 않으므로 최초 접근시 한번만 생성한다.
+	private volatile Map<String,ConfigNode> m_members;
+	private volatile ConfigNode[] m_elements;
+	// 변수 치환이 완료된 문자열 값. 참조하는 변수가 변경되면 JsonConfiguration에 의해 제거된다.
+	private volatile String m_resolved;
 	
-	JsonConfigNode(JsonConfiguration config, ConfigNode parent, String path, JsonElement elm) {
+	JsonConfigNode(JsonConfiguration config, JsonConfiguration.TreeState state, ConfigNode parent,
+					String path, JsonElement elm) {
 		m_config = config;
+		m_state = state;
 		m_parent = parent;
 		m_path = path;
 		m_elm = elm;
+		m_loader = null;
+		m_sections = null;
+	}
+	
+	// 원소가 최초 접근시 주어진 적재자에 의해 적재되는 노드를 생성한다.
+	JsonConfigNode(JsonConfiguration config, JsonConfiguration.TreeState state, ConfigNode parent,
+					String path, Supplier<JsonElement> loader) {
+		this(config, state, parent, path, loader, null);
+	}
+	
+	// 최상위 section들이 해당 section에 처음 접근할 때 적재되는 루트 노드를 생성한다.
+	JsonConfigNode(JsonConfiguration config, JsonConfiguration.TreeState state, JsonSectionIndex sections) {
+		this(config, state, null, "", sections::parseAll, sections);
+	}
+	
+	private JsonConfigNode(JsonConfiguration config, JsonConfiguration.TreeState state, ConfigNode parent,
+							String path, Supplier<JsonElement> loader, JsonSectionIndex sections) {
+		m_config = config;
+		m_state = state;
+		m_parent = parent;
+		m_path = path;
+		m_elm = null;
+		m_loader = loader;
+		m_sections = sections;
 	}
 
 	@Override
@@ -50,58 +86,73 @@ public class JsonConfigNode implements ConfigNode {
 
 	@Override
 	public boolean isMap() {
-		return m_elm instanceof JsonObject;
+		return m_sections != null || getJsonElement() instanceof JsonObject;
 	}
 
 	@Override
 	public boolean isArray() {
-		return m_elm instanceof JsonArray;
+		return getJsonElement() instanceof JsonArray;
 	}
 
 	@Override
 	public boolean isPrimitive() {
-		return m_elm instanceof JsonPrimitive;
+		return getJsonElement() instanceof JsonPrimitive;
 	}
 
 	@Override
 	public int asInt() {
-		return m_elm.getAsInt();
+		return getJsonElement().getAsInt();
 	}
 
 	@Override
 	public long asLong() {
-		return m_elm.getAsLong();
+		return getJsonElement().getAsLong();
 	}
 
 	@Override
 	public String asString() {
-		return StringSubstitutor.replace(m_elm.getAsString(), m_config.getVariables());
-//		return StrSubstitutor.replace(m_elm.getAsString(), m_config.getVariables());
+		String resolved = m_resolved;
+		if ( resolved == null ) {
+			String str = getJsonElement().getAsString();
+			if ( str.indexOf('$') < 0 ) {
+				// 변수를 참조하지 않는 값은 치환 없이 그대로 캐시한다.
+				m_resolved = resolved = str;
+			}
+			else {
+				resolved = m_state.substitute(this, str);
+			}
+		}
+		
+		return resolved;
+	}
+	
+	void setResolvedString(String resolved) {
+		m_resolved = resolved;
 	}
 
 	@Override
 	public float asFloat() {
-		return m_elm.getAsFloat();
+		return getJsonElement().getAsFloat();
 	}
 
 	@Override
 	public double asDouble() {
-		return m_elm.getAsDouble();
+		return getJsonElement().getAsDouble();
 	}
 
 	@Override
 	public short asShort() {
-		return m_elm.getAsShort();
+		return getJsonElement().getAsShort();
 	}
 
 	@Override
 	public byte asByte() {
-		return m_elm.getAsByte();
+		return getJsonElement().getAsByte();
 	}
 
 	@Override
 	public boolean asBoolean() {
-		return m_elm.getAsBoolean();
+		return getJsonElement().getAsBoolean();
 	}
 
 	@Override
@@ -111,9 +162,10 @@ public class JsonConfigNode implements ConfigNode {
 
 	@Override
 	public Object[] getAsArray() {
-		Preconditions.checkState(m_elm.isJsonArray(), "Not ARRAY node: node=" + this);
+		JsonElement elm = getJsonElement();
+		Preconditions.checkState(elm.isJsonArray(), "Not ARRAY node: node=%s", this);
 		
-		JsonArray arr = (JsonArray)m_elm;
+		JsonArray arr = (JsonArray)elm;
 		return IntStream.range(0, arr.size())
 						.mapToObj(idx -> arr.get(idx))
 						.toArray(sz -> new Object[sz]);
@@ -121,60 +173,98 @@ public class JsonConfigNode implements ConfigNode {
 
 	@Override
 	public Map<String,Object> getAsMap() {
-		Preconditions.checkState(m_elm.isJsonObject(), "Not MAP node: node=" + this);
+		JsonElement elm = getJsonElement();
+		Preconditions.checkState(elm.isJsonObject(), "Not MAP node: node=%s", this);
 
-		return ((JsonObject)m_elm).entrySet().stream()
+		return ((JsonObject)elm).entrySet().stream()
 									.collect(Collectors.toMap(Map.Entry::getKey,
 													ent -> getAsJavaObject(ent.getValue())));
 	}
 
 	@Override
 	public Set<String> names() {
-		Preconditions.checkState(m_elm.isJsonObject(), "Not MAP node: node=" + this);
-		
-		return ((JsonObject)m_elm).entrySet()
-									.stream()
-									.map(Map.Entry::getKey)
-									.collect(Collectors.toSet());
+		return getMembers().keySet();
 	}
 
 	@Override
 	public ConfigNode get(String name) {
-		Preconditions.checkState(m_elm.isJsonObject(), "Not MAP node: node=" + this);
-		
-		String memberPath = (getPath().length() > 0) ? getPath() + "." + name : name;
-		JsonElement member = ((JsonObject)m_elm).get(name);
-		return (member != null) ? new JsonConfigNode(m_config, this, memberPath, member)
-								: new MissingConfigNode(m_config, memberPath);
+		ConfigNode member = getMembers().get(name);
+		return (member != null) ? member
+								: new MissingConfigNode(m_config, ConfigNode.toPath(getPath(), name));
 	}
 
 	@Override
 	public boolean has(String name) {
-		Preconditions.checkState(m_elm.isJsonObject(), "Not MAP node: node=" + this);
-		
-		return ((JsonObject)m_elm).has(name);
+		return getMembers().containsKey(name);
 	}
 
 	@Override
 	public int size() {
-		Preconditions.checkState(m_elm.isJsonArray(), "Not ARRAY node: node=" + this);
+		JsonElement elm = getJsonElement();
+		Preconditions.checkState(elm.isJsonArray(), "Not ARRAY node: node=%s", this);
 		
-		return ((JsonArray)m_elm).size();
+		return ((JsonArray)elm).size();
 	}
 
 	@Override
 	public ConfigNode get(int index) {
-		Preconditions.checkState(m_elm.isJsonArray(), "Not ARRAY node: node=" + this);
+		ConfigNode[] elements = m_elements;
+		if ( elements == null ) {
+			Preconditions.checkState(getJsonElement().isJsonArray(), "Not ARRAY node: node=%s", this);
+			
+			synchronized ( this ) {
+				if ( (elements = m_elements) == null ) {
+					JsonArray arr = (JsonArray)getJsonElement();
+					elements = new ConfigNode[arr.size()];
+					for ( int i =0; i < elements.length; ++i ) {
+						String elmPath = getPath() + "[" + i + "]";
+						elements[i] = new JsonConfigNode(m_config, m_state, this, elmPath, arr.get(i));
+					}
+					m_elements = elements;
+				}
+			}
+		}
 		
-		String memberPath = String.format("%s[%d]", getPath(), index);
+		return elements[index];
+	}
+	
+	// 하위 노드들을 이름 순서대로 담은 변경 불가능한 map을 반환한다.
+	private Map<String,ConfigNode> getMembers() {
+		Map<String,ConfigNode> members = m_members;
+		if ( members == null ) {
+			Preconditions.checkState(isMap(), "Not MAP node: node=%s", this);
+			
+			synchronized ( this ) {
+				if ( (members = m_members) == null && m_sections != null ) {
+					// 지연 적재 루트 노드는 section 색인으로부터 하위 노드들을 생성하며,
+					// 각 section은 해당 노드의 원소가 처음 사용될 때 적재된다.
+					members = Maps.newLinkedHashMapWithExpectedSize(m_sections.getSectionNames().size());
+					for ( String name: m_sections.getSectionNames() ) {
+						String memberPath = ConfigNode.toPath(getPath(), name);
+						members.put(name, new JsonConfigNode(m_config, m_state, this, memberPath,
+															() -> m_sections.parse(name)));
+					}
+					m_members = members = Collections.unmodifiableMap(members);
+				}
+				else if ( members == null ) {
+					Set<Map.Entry<String,JsonElement>> entries = ((JsonObject)getJsonElement()).entrySet();
+					members = Maps.newLinkedHashMapWithExpectedSize(entries.size());
+					for ( Map.Entry<String,JsonElement> ent: entries ) {
+						String memberPath = ConfigNode.toPath(getPath(), ent.getKey());
+						members.put(ent.getKey(), new JsonConfigNode(m_config, m_state, this, memberPath,
+																	ent.getValue()));
+					}
+					m_members = members = Collections.unmodifiableMap(members);
+				}
+			}
+		}
 		
-		JsonElement member = ((JsonArray)m_elm).get(index);
-		return new JsonConfigNode(m_config, this, memberPath, member);
+		return members;
 	}
 	
 	@Override
 	public String toString() {
-		return toString(m_elm);
+		return toString(getJsonElement());
 	}
 	
 	private static String toString(JsonElement elm) {
@@ -197,8 +287,23 @@ public class JsonConfigNode implements ConfigNode {
 		throw new AssertionError();
 	}
 	
+	// 이 노드의 Gson 원소를 반환한다. 지연 적재 노드인 경우는 최초 호출시 원소를 적재한다.
+	JsonElement getJsonElement() {
+		JsonElement elm = m_elm;
+		if ( elm == null ) {
+			synchronized ( this ) {
+				if ( (elm = m_elm) == null ) {
+					m_elm = elm = m_loader.get();
+					m_loader = null;
+				}
+			}
+		}
+		
+		return elm;
+	}
+	
 	public Object getValue() {
-		return getAsJavaObject(m_elm);
+		return getAsJavaObject(getJsonElement());
 	}
 	
 	private static Object getAsJavaObject(JsonElement elm) {
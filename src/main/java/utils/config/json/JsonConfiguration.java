@@ -1,20 +1,36 @@
 package utils.config.json;
 
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
 
 import org.apache.commons.text.StringSubstitutor;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.gson.Gson;
+import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 
+import utils.config.ConfigNameIndex;
 import utils.config.ConfigNode;
+import utils.config.ConfigPath;
 import utils.config.Configuration;
 
 /**
@@ -22,51 +38,158 @@ import utils.config.Configuration;
  * @author Kang-Woo Lee (ETRI)
  */
 public class JsonConfiguration implements Configuration {
-	private ConfigNode m_root;
-	private Properties m_variables;
+	private static final int MAX_CACHED_NODES = 4096;
+	
+	// 현재 설정 트리와 그에 대한 변수, 캐시 및 색인. 설정 파일을 다시 읽으면 통째로 교체된다.
+	private volatile TreeState m_state;
+	// addVariable()로 추가된 변수들. 설정 파일을 다시 읽은 경우에도 유지된다.
+	private final Properties m_userVariables = new Properties();
 	
 	private JsonConfiguration() {
 	}
 
 	@Override
 	public ConfigNode getRoot() {
-		return m_root;
+		return m_state.m_root;
+	}
+
+	@Override
+	public ConfigNode traverse(String path) {
+		TreeState state = m_state;
+		ConfigNode node = state.m_nodeCache.getIfPresent(path);
+		return (node != null) ? node : state.traverse(ConfigPath.compile(path));
+	}
+	
+	@Override
+	public ConfigNode traverse(ConfigPath path) {
+		return m_state.traverse(path);
+	}
+
+	@Override
+	public Set<ConfigNode> findConfigByName(String name) {
+		return m_state.getNameIndex().find(name);
 	}
 
 	@Override
 	public Properties getVariables() {
-		return m_variables;
+		return m_state.m_variables;
 	}
 
+	/**
+	 * 설정 변수를 추가하거나 변경한다.
+	 * <p>
+	 * 해당 변수를 참조하는 노드들의 치환된 문자열 캐시는 제거되어 다음 접근시 다시 치환된다.
+	 * {@link #getVariables()}로 얻은 객체를 직접 수정하는 경우는 캐시가 갱신되지 않으므로
+	 * 변수 변경은 반드시 이 메소드를 통해야 한다.
+	 */
 	@Override
-	public void addVariable(String name, String value) {
-		m_variables.put(name, value);
+	public synchronized void addVariable(String name, String value) {
+		m_userVariables.put(name, value);
+		m_state.setVariable(name, value);
 	}
 
 	public static JsonConfiguration load(File configFile) throws IOException {
-		try ( FileReader reader = new FileReader(configFile) ) {
-			Properties variables = new Properties();
-			variables.put("config_dir", configFile.getParentFile().getAbsolutePath());
-			
-			
-			return load(JsonParser.parseReader(reader), variables);
-		}
+		JsonElement root = parse(configFile);
+		
+		JsonConfiguration config = new JsonConfiguration();
+		Properties variables = buildVariables(getVariablesElement(root), newFileVariables(configFile));
+		config.m_state = config.newState(variables, root);
+		
+		return config;
 	}
 
-	public static JsonConfiguration load(String configStr) {
-		Properties variables = new Properties();
-		return load(JsonParser.parseString(configStr), variables);
+	/**
+	 * 주어진 설정 파일을 지연 적재 방식으로 읽는다.
+	 * <p>
+	 * 적재시에는 파일을 한번 순차적으로 읽어 최상위 section들의 위치만 색인하며,
+	 * 각 section은 해당 노드가 처음 사용될 때 파일에서 해당 부분만 읽어 분석한다.
+	 * 단, 'config_variables' section은 변수 설정을 위해 적재시 분석된다.
+	 * 전체 트리를 필요로 하는 연산({@link #findConfigByName(String)}, 루트 노드의
+	 * {@link ConfigNode#getAsMap()} 등)은 모든 section을 적재시킨다.
+	 * <p>
+	 * 설정 파일은 반환된 설정 객체를 사용하는 동안 변경되지 않아야 한다.
+	 * 
+	 * @param configFile	설정 파일. 최상위 값은 JSON 객체이어야 한다.
+	 * @return	설정 객체.
+	 * @throws IOException	설정 파일 읽기가 실패한 경우.
+	 */
+	public static JsonConfiguration loadLazily(File configFile) throws IOException {
+		JsonSectionIndex sections = JsonSectionIndex.build(configFile);
+		
+		JsonConfiguration config = new JsonConfiguration();
+		Properties variables = buildVariables(sections.parse("config_variables"), newFileVariables(configFile));
+		config.m_state = new TreeState(variables, state -> new JsonConfigNode(config, state, sections));
+		
+		return config;
 	}
 
-	private static JsonConfiguration load(JsonElement root, Properties variables) {
+	public static JsonConfiguration load(String configStr) {
+		JsonElement root = JsonParser.parseString(configStr);
+		
 		JsonConfiguration config = new JsonConfiguration();
+		Properties variables = buildVariables(getVariablesElement(root), new Properties());
+		config.m_state = config.newState(variables, root);
+		
+		return config;
+	}
+	
+	/**
+	 * 주어진 설정 파일을 다시 읽어 설정 트리와 설정 변수를 교체한다.
+	 * <p>
+	 * 새 설정 트리와 변수는 한번에 교체되므로, 교체 이후의 {@link #traverse(String)} 호출은 새 트리의
+	 * 노드를 반환한다. 이전에 얻은 노드들은 이전 트리의 값과 변수를 유지한다.
+	 * {@link #addVariable(String, String)}로 추가된 변수는 새 설정에서도 유지된다.
+	 * 
+	 * @param configFile	설정 파일.
+	 * @return	값이 추가, 삭제 또는 변경된 노드들의 경로 집합. 설정 변수의 변경으로 치환된 값이
+	 * 			바뀐 노드들도 포함된다.
+	 * @throws IOException	설정 파일 읽기가 실패한 경우.
+	 */
+	synchronized Set<String> reload(File configFile) throws IOException {
+		JsonElement root = parse(configFile);
+		Properties variables = buildVariables(getVariablesElement(root), newFileVariables(configFile));
+		variables.putAll(m_userVariables);
+		
+		TreeState prev = m_state;
+		Set<String> changed = new TreeSet<>();
+		collectChanges("", ((JsonConfigNode)prev.m_root).getJsonElement(), root, changed);
+		if ( !variables.equals(prev.m_variables) ) {
+			collectSubstitutionChanges("", root, prev.m_variables, variables, changed);
+		}
 		
+		m_state = newState(variables, root);
+		
+		return changed;
+	}
+	
+	private TreeState newState(Properties variables, JsonElement root) {
+		return new TreeState(variables, state -> new JsonConfigNode(this, state, null, "", root));
+	}
+	
+	private static JsonElement parse(File configFile) throws IOException {
+		try ( Reader reader = new InputStreamReader(new FileInputStream(configFile),
+													StandardCharsets.UTF_8) ) {
+			return JsonParser.parseReader(reader);
+		}
+	}
+	
+	private static Properties newFileVariables(File configFile) {
+		Properties variables = new Properties();
+		variables.put("config_dir", configFile.getAbsoluteFile().getParentFile().getAbsolutePath());
+		
+		return variables;
+	}
+
+	private static JsonElement getVariablesElement(JsonElement root) {
+		return ((JsonObject)root).get("config_variables");
+	}
+
+	private static Properties buildVariables(JsonElement varsElm, Properties variables) {
 		Map<String,String> envVars = System.getenv();
 		for ( Map.Entry<String,String> e: envVars.entrySet() ) {
 			variables.put(e.getKey(), StringSubstitutor.replace(e.getValue(), variables));
 		}
 		
-		JsonElement varsElm = ((JsonObject)root).get("config_variables");
 		if ( varsElm != null && varsElm instanceof JsonObject ) {
 			JsonObject objElm = (JsonObject)varsElm;
 			
@@ -78,15 +201,161 @@ public class JsonConfiguration implements Configuration {
 					});
 		}
 		
-		config.m_root = new JsonConfigNode(config, null, "", root);
-		config.m_variables = variables;
+		return variables;
+	}
+	
+	// 두 Gson 트리를 비교하여 값이 달라진 노드들의 경로를 수집한다.
+	// 크기가 달라진 배열이나 타입이 바뀐 노드는 하위 노드를 비교하지 않고 해당 노드의 경로만 수집한다.
+	private static void collectChanges(String path, JsonElement prev, JsonElement cur, Set<String> changed) {
+		if ( prev.isJsonObject() && cur.isJsonObject() ) {
+			JsonObject prevObj = prev.getAsJsonObject();
+			JsonObject curObj = cur.getAsJsonObject();
+			for ( Map.Entry<String,JsonElement> ent: prevObj.entrySet() ) {
+				String memberPath = ConfigNode.toPath(path, ent.getKey());
+				JsonElement curMember = curObj.get(ent.getKey());
+				if ( curMember == null ) {
+					changed.add(memberPath);
+				}
+				else {
+					collectChanges(memberPath, ent.getValue(), curMember, changed);
+				}
+			}
+			for ( String name: curObj.keySet() ) {
+				if ( !prevObj.has(name) ) {
+					changed.add(ConfigNode.toPath(path, name));
+				}
+			}
+		}
+		else if ( prev.isJsonArray() && cur.isJsonArray()
+				&& prev.getAsJsonArray().size() == cur.getAsJsonArray().size() ) {
+			JsonArray prevArr = prev.getAsJsonArray();
+			JsonArray curArr = cur.getAsJsonArray();
+			for ( int i =0; i < prevArr.size(); ++i ) {
+				collectChanges(path + "[" + i + "]", prevArr.get(i), curArr.get(i), changed);
+			}
+		}
+		else if ( !prev.equals(cur) ) {
+			changed.add(path);
+		}
+	}
+
+	// 주어진 트리에서 '${...}' 변수를 참조하는 문자열 값 중, 이전 변수와 새 변수로 치환한 결과가
+	// 서로 다른 노드들의 경로를 수집한다.
+	private static void collectSubstitutionChanges(String path, JsonElement elm, Properties prevVars,
+													Properties curVars, Set<String> changed) {
+		if ( elm.isJsonObject() ) {
+			for ( Map.Entry<String,JsonElement> ent: elm.getAsJsonObject().entrySet() ) {
+				collectSubstitutionChanges(ConfigNode.toPath(path, ent.getKey()), ent.getValue(),
+											prevVars, curVars, changed);
+			}
+		}
+		else if ( elm.isJsonArray() ) {
+			JsonArray arr = elm.getAsJsonArray();
+			for ( int i =0; i < arr.size(); ++i ) {
+				collectSubstitutionChanges(path + "[" + i + "]", arr.get(i), prevVars, curVars, changed);
+			}
+		}
+		else if ( elm.isJsonPrimitive() && elm.getAsJsonPrimitive().isString() ) {
+			String str = elm.getAsString();
+			if ( str.indexOf('$') >= 0
+				&& !StringSubstitutor.replace(str, prevVars).equals(StringSubstitutor.replace(str, curVars)) ) {
+				changed.add(path);
+			}
+		}
+	}
+
+	/**
+	 * 하나의 설정 트리와 그 트리에서 사용되는 변수, 노드 캐시, 이름 색인.
+	 * <p>
+	 * 설정 트리가 교체될 때는 새로운 상태 객체가 생성되어 한번의 volatile 쓰기로 교체되므로,
+	 * 이전 트리를 탐색 중인 쓰레드가 이전 트리의 노드를 새 트리의 캐시에 등록하거나
+	 * 이전 트리의 노드가 새 트리의 변수로 치환되는 일이 발생하지 않는다.
+	 */
+	static final class TreeState {
+		private final ConfigNode m_root;
+		private final Properties m_variables;
+		// 루트 노드 기준 경로 문자열에서 해당 노드로의 캐시
+		private final Cache<String,ConfigNode> m_nodeCache = CacheBuilder.newBuilder()
+																	.maximumSize(MAX_CACHED_NODES)
+																	.build();
+		// 노드 이름 색인. 최초 사용시 생성된다.
+		private volatile ConfigNameIndex m_nameIndex;
+		// 변수 이름에서 해당 변수를 참조하는 노드들로의 map. 변수 값이 바뀌면 해당 노드들의 치환 결과만 제거한다.
+		private final ConcurrentMap<String,Set<JsonConfigNode>> m_varDependents = new ConcurrentHashMap<>();
+		// setVariable() 호출시마다 증가. 치환 도중 변수가 바뀐 경우 그 결과를 캐시하지 않기 위해 사용한다.
+		private long m_varGeneration = 0;
+		
+		private TreeState(Properties variables, Function<TreeState,ConfigNode> rootFactory) {
+			m_variables = variables;
+			m_root = rootFactory.apply(this);
+		}
 		
-		return config;
+		private ConfigNode traverse(ConfigPath path) {
+			ConfigNode node = m_nodeCache.getIfPresent(path.getPath());
+			if ( node == null ) {
+				node = path.resolve(m_root);
+				m_nodeCache.put(path.getPath(), node);
+			}
+			
+			return node;
+		}
+		
+		private ConfigNameIndex getNameIndex() {
+			ConfigNameIndex index = m_nameIndex;
+			if ( index == null ) {
+				synchronized ( this ) {
+					index = m_nameIndex;
+					if ( index == null ) {
+						m_nameIndex = index = ConfigNameIndex.build(m_root);
+					}
+				}
+			}
+			
+			return index;
+		}
+		
+		private synchronized void setVariable(String name, String value) {
+			m_variables.put(name, value);
+			++m_varGeneration;
+			
+			Set<JsonConfigNode> dependents = m_varDependents.remove(name);
+			if ( dependents != null ) {
+				dependents.forEach(node -> node.setResolvedString(null));
+			}
+		}
+		
+		// 주어진 노드의 문자열 값에 포함된 '${...}' 변수를 치환하고, 그 결과를 노드에 캐시한다.
+		// 치환 중 참조된 모든 변수(중첩 참조 포함)에 대해 해당 노드를 의존 노드로 등록한다.
+		String substitute(JsonConfigNode node, String str) {
+			long generation;
+			synchronized ( this ) {
+				generation = m_varGeneration;
+			}
+			
+			Set<String> refs = new HashSet<>();
+			String resolved = new StringSubstitutor(key -> {
+				refs.add(key);
+				Object value = m_variables.get(key);
+				return (value != null) ? value.toString() : null;
+			}).replace(str);
+			
+			for ( String ref: refs ) {
+				m_varDependents.computeIfAbsent(ref, k -> ConcurrentHashMap.newKeySet()).add(node);
+			}
+			synchronized ( this ) {
+				if ( generation == m_varGeneration ) {
+					node.setResolvedString(resolved);
+				}
+			}
+			
+			return resolved;
+		}
 	}
 
 	@Override
 	public void write(Object value, File file) throws IOException {
-		try ( FileWriter writer = new FileWriter(file) ) {
+		try ( Writer writer = new OutputStreamWriter(new FileOutputStream(file),
+													StandardCharsets.UTF_8) ) {
 			new Gson().toJson(value, writer);
 		}
 	}
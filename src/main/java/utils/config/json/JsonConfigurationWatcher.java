@@ -0,0 +1,177 @@
+package utils.config.json;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.subjects.PublishSubject;
+import io.reactivex.rxjava3.subjects.Subject;
+
+/**
+ * 설정 파일의 변경을 감시하여 {@link JsonConfiguration}을 다시 적재하는 감시자.
+ * <p>
+ * 감시자는 설정 파일이 위치한 디렉토리를 {@link WatchService}로 감시하며, 설정 파일이 수정되거나
+ * 새로 생성(편집기에 의한 교체 포함)되면 파일을 다시 읽어 설정 트리를 한번에 교체한다.
+ * 짧은 시간 동안 연속하여 발생한 변경 이벤트들은 한번의 적재로 처리된다.
+ * 교체가 완료되면 값이 바뀐 노드들의 경로 집합이 {@link #observeChanges()}로 발행된다.
+ * <p>
+ * 다시 읽은 설정 파일의 형식이 올바르지 않은 경우는 기존 설정이 그대로 유지된다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+public final class JsonConfigurationWatcher implements AutoCloseable {
+	private static final Logger s_logger = LoggerFactory.getLogger(JsonConfigurationWatcher.class);
+	private static final long SETTLE_MILLIS = 100;
+
+	private final File m_configFile;
+	private final JsonConfiguration m_config;
+	private final WatchService m_watchService;
+	private final Subject<Set<String>> m_changes = PublishSubject.<Set<String>>create().toSerialized();
+	private final Thread m_watcherThread;
+	private volatile boolean m_closed = false;
+
+	private JsonConfigurationWatcher(File configFile, JsonConfiguration config, WatchService watchService) {
+		m_configFile = configFile;
+		m_config = config;
+		m_watchService = watchService;
+
+		m_watcherThread = new Thread(this::watchLoop, "config-watcher[" + configFile.getName() + "]");
+		m_watcherThread.setDaemon(true);
+	}
+
+	/**
+	 * 주어진 설정 파일을 적재하고, 파일 변경 감시를 시작한다.
+	 *
+	 * @param configFile	설정 파일.
+	 * @return	설정 감시자.
+	 * @throws IOException	설정 파일 적재 또는 감시 등록이 실패한 경우.
+	 */
+	public static JsonConfigurationWatcher watch(File configFile) throws IOException {
+		Preconditions.checkArgument(configFile != null, "config file is null");
+
+		File file = configFile.getAbsoluteFile();
+		JsonConfiguration config = JsonConfiguration.load(file);
+
+		Path dir = file.getParentFile().toPath();
+		WatchService watchService = dir.getFileSystem().newWatchService();
+		try {
+			dir.register(watchService, ENTRY_MODIFY, ENTRY_CREATE);
+		}
+		catch ( IOException e ) {
+			watchService.close();
+			throw e;
+		}
+
+		JsonConfigurationWatcher watcher = new JsonConfigurationWatcher(file, config, watchService);
+		watcher.m_watcherThread.start();
+
+		return watcher;
+	}
+
+	/**
+	 * 감시 중인 설정 객체를 반환한다.
+	 * <p>
+	 * 설정 파일이 다시 적재되어도 반환되는 설정 객체는 동일하며, 설정 트리만 교체된다.
+	 *
+	 * @return	설정 객체.
+	 */
+	public JsonConfiguration getConfiguration() {
+		return m_config;
+	}
+
+	/**
+	 * 설정 파일이 다시 적재될 때마다 값이 바뀐 노드들의 경로 집합을 발행하는 Observable을 반환한다.
+	 * <p>
+	 * 경로는 {@link utils.config.ConfigNode#getPath()} 형식이며, 값이 바뀐 노드가 없는 적재는
+	 * 발행되지 않는다. 감시자가 종료되면 Observable도 종료된다.
+	 *
+	 * @return	변경 경로 Observable.
+	 */
+	public Observable<Set<String>> observeChanges() {
+		return m_changes.hide();
+	}
+
+	/**
+	 * 파일 변경 이벤트와 관계없이 설정 파일을 즉시 다시 적재한다.
+	 *
+	 * @return	값이 바뀐 노드들의 경로 집합.
+	 * @throws IOException	설정 파일 적재가 실패한 경우.
+	 */
+	public Set<String> reload() throws IOException {
+		Set<String> changed = m_config.reload(m_configFile);
+		if ( !changed.isEmpty() ) {
+			m_changes.onNext(changed);
+		}
+
+		return changed;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if ( !m_closed ) {
+			m_closed = true;
+			m_watchService.close();
+			m_changes.onComplete();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("JsonConfigurationWatcher[%s%s]", m_configFile, m_closed ? ", closed" : "");
+	}
+
+	private void watchLoop() {
+		try {
+			while ( !m_closed ) {
+				WatchKey key = m_watchService.take();
+				boolean touched = pollEvents(key);
+
+				// 편집기 등에 의해 연속하여 발생하는 이벤트들을 모은 후 한번만 적재한다.
+				while ( (key = m_watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null ) {
+					touched |= pollEvents(key);
+				}
+
+				if ( touched && m_configFile.exists() ) {
+					try {
+						reload();
+					}
+					catch ( Exception e ) {
+						s_logger.warn("fails to reload config: file={}, cause={}", m_configFile, e.toString());
+					}
+				}
+			}
+		}
+		catch ( InterruptedException | ClosedWatchServiceException e ) {
+			// 감시자가 종료됨
+		}
+	}
+
+	// 주어진 key의 이벤트 중에서 설정 파일에 대한 이벤트가 있는지 확인하고 key를 재설정한다.
+	private boolean pollEvents(WatchKey key) {
+		boolean touched = false;
+		for ( WatchEvent<?> ev: key.pollEvents() ) {
+			Object ctx = ev.context();
+			if ( ctx instanceof Path && ((Path)ctx).getFileName().toString().equals(m_configFile.getName()) ) {
+				touched = true;
+			}
+		}
+		key.reset();
+
+		return touched;
+	}
+}
@@ -0,0 +1,287 @@
+package utils.config.json;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.io.ByteStreams;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+
+/**
+ * JSON 설정 파일의 최상위 section들의 위치 색인.
+ * <p>
+ * 색인은 파일을 한번 순차적으로 읽으면서 최상위 객체의 각 멤버 값이 위치한 바이트 범위를 기록하여
+ * 생성된다. 이 과정에서는 문자열과 괄호의 중첩만 추적하며 JSON 트리는 생성하지 않는다.
+ * 각 section은 {@link #parse(String)} 호출시 해당 바이트 범위만을 {@link JsonReader}로 읽어
+ * Gson 트리로 변환된다.
+ * <p>
+ * 색인 생성 이후 파일이 변경되면 안된다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+final class JsonSectionIndex {
+	private final File m_file;
+	private final Map<String,long[]> m_sections;	// section 이름 -> {시작 위치, 끝 위치(exclusive)}
+
+	private JsonSectionIndex(File file, Map<String,long[]> sections) {
+		m_file = file;
+		m_sections = sections;
+	}
+
+	/**
+	 * 주어진 JSON 파일의 최상위 section 색인을 생성한다.
+	 *
+	 * @param file	JSON 파일. 최상위 값은 JSON 객체이어야 한다.
+	 * @return	section 색인.
+	 * @throws IOException	파일 읽기가 실패한 경우.
+	 * @throws JsonParseException	파일의 최상위 구조가 올바르지 않은 경우.
+	 */
+	static JsonSectionIndex build(File file) throws IOException {
+		try ( InputStream is = new BufferedInputStream(new FileInputStream(file)) ) {
+			return new JsonSectionIndex(file, new Scanner(file, is).scan());
+		}
+	}
+
+	Set<String> getSectionNames() {
+		return m_sections.keySet();
+	}
+
+	boolean contains(String name) {
+		return m_sections.containsKey(name);
+	}
+
+	/**
+	 * 주어진 이름의 section을 파일에서 읽어 Gson 트리로 변환한다.
+	 *
+	 * @param name	section 이름.
+	 * @return	section 값. 해당 section이 없는 경우는 {@code null}.
+	 * @throws UncheckedIOException	파일 읽기가 실패한 경우.
+	 */
+	JsonElement parse(String name) {
+		long[] range = m_sections.get(name);
+		if ( range == null ) {
+			return null;
+		}
+
+		try ( InputStream is = new FileInputStream(m_file) ) {
+			ByteStreams.skipFully(is, range[0]);
+			InputStream section = ByteStreams.limit(new BufferedInputStream(is), range[1] - range[0]);
+			return JsonParser.parseReader(new JsonReader(new InputStreamReader(section,
+																				StandardCharsets.UTF_8)));
+		}
+		catch ( IOException e ) {
+			throw new UncheckedIOException("fails to read config section: name=" + name
+											+ ", file=" + m_file, e);
+		}
+	}
+
+	/**
+	 * 파일 전체를 Gson 트리로 변환한다.
+	 *
+	 * @return	최상위 JSON 객체.
+	 * @throws UncheckedIOException	파일 읽기가 실패한 경우.
+	 */
+	JsonElement parseAll() {
+		try ( InputStream is = new BufferedInputStream(new FileInputStream(m_file)) ) {
+			return JsonParser.parseReader(new JsonReader(new InputStreamReader(is, StandardCharsets.UTF_8)));
+		}
+		catch ( IOException e ) {
+			throw new UncheckedIOException("fails to read config file: " + m_file, e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("JsonSectionIndex[file=%s, sections=%s]", m_file, m_sections.keySet());
+	}
+
+	// 최상위 객체의 멤버 값들의 바이트 범위를 찾는 scanner.
+	// JSON 구조 문자는 모두 ASCII이므로 UTF-8 바이트 단위로 처리하여도 문자열 내부의
+	// 다중 바이트 문자와 혼동되지 않는다.
+	private static final class Scanner {
+		private final File m_file;
+		private final InputStream m_is;
+		private long m_pos = 0;
+		private int m_peeked = -2;
+
+		Scanner(File file, InputStream is) {
+			m_file = file;
+			m_is = is;
+		}
+
+		Map<String,long[]> scan() throws IOException {
+			skipBom();
+			expect('{');
+
+			Map<String,long[]> sections = new LinkedHashMap<>();
+			int c = skipWhitespace();
+			if ( c == '}' ) {
+				return Collections.emptyMap();
+			}
+			while ( true ) {
+				if ( c != '"' ) {
+					throw error("member name expected");
+				}
+				String name = readName();
+				expect(':');
+				skipWhitespace();
+
+				long start = m_pos;
+				long end = skipValue();
+				if ( end == start ) {
+					throw error("member value expected");
+				}
+				sections.put(name, new long[] {start, end});
+
+				c = skipWhitespace();
+				read();
+				if ( c == '}' ) {
+					break;
+				}
+				else if ( c != ',' ) {
+					throw error("',' or '}' expected");
+				}
+				c = skipWhitespace();
+			}
+
+			return Collections.unmodifiableMap(sections);
+		}
+
+		// 현재 위치의 값을 건너뛰고, 값이 끝난 위치를 반환한다.
+		private long skipValue() throws IOException {
+			int depth = 0;
+			long end = m_pos;
+			while ( true ) {
+				int c = peek();
+				if ( c < 0 ) {
+					throw error("unexpected end of file");
+				}
+				if ( depth == 0 && (c == ',' || c == '}') ) {
+					return end;
+				}
+
+				read();
+				switch ( c ) {
+					case '"':
+						skipString();
+						break;
+					case '{':
+					case '[':
+						++depth;
+						break;
+					case '}':
+					case ']':
+						--depth;
+						break;
+					default:
+						if ( isWhitespace(c) ) {
+							continue;
+						}
+				}
+				end = m_pos;
+			}
+		}
+
+		private String readName() throws IOException {
+			long start = m_pos;
+			ByteArrayOutputStream raw = new ByteArrayOutputStream();
+			raw.write(read());
+			skipString(raw);
+			try {
+				String quoted = new String(raw.toByteArray(), StandardCharsets.UTF_8);
+				return JsonParser.parseString(quoted).getAsString();
+			}
+			catch ( JsonParseException e ) {
+				throw new JsonParseException(String.format("invalid member name at offset %d: file=%s",
+															start, m_file), e);
+			}
+		}
+
+		private void skipString() throws IOException {
+			skipString(null);
+		}
+
+		// 시작 '"' 이후부터 끝 '"'까지 읽는다.
+		private void skipString(ByteArrayOutputStream collector) throws IOException {
+			while ( true ) {
+				int c = read();
+				if ( c < 0 ) {
+					throw error("unterminated string");
+				}
+				if ( collector != null ) {
+					collector.write(c);
+				}
+				if ( c == '\\' ) {
+					int escaped = read();
+					if ( collector != null ) {
+						collector.write(escaped);
+					}
+				}
+				else if ( c == '"' ) {
+					return;
+				}
+			}
+		}
+
+		private void skipBom() throws IOException {
+			if ( peek() == 0xEF ) {
+				read();
+				if ( read() != 0xBB || read() != 0xBF ) {
+					throw error("invalid byte-order mark");
+				}
+			}
+		}
+
+		private void expect(int expected) throws IOException {
+			if ( skipWhitespace() != expected ) {
+				throw error("'" + (char)expected + "' expected");
+			}
+			read();
+		}
+
+		private int skipWhitespace() throws IOException {
+			int c;
+			while ( isWhitespace(c = peek()) ) {
+				read();
+			}
+			return c;
+		}
+
+		private int peek() throws IOException {
+			if ( m_peeked == -2 ) {
+				m_peeked = m_is.read();
+			}
+			return m_peeked;
+		}
+
+		private int read() throws IOException {
+			int c = peek();
+			m_peeked = -2;
+			if ( c >= 0 ) {
+				++m_pos;
+			}
+			return c;
+		}
+
+		private JsonParseException error(String msg) {
+			return new JsonParseException(String.format("%s at offset %d: file=%s", msg, m_pos, m_file));
+		}
+
+		private static boolean isWhitespace(int c) {
+			return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+		}
+	}
+}
@@ -0,0 +1,340 @@
+package utils.config.snapshot;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import com.google.common.base.Preconditions;
+import com.google.gson.Gson;
+
+import utils.config.ConfigNameIndex;
+import utils.config.ConfigNode;
+import utils.config.Configuration;
+import utils.io.Lz4Compressions;
+
+/**
+ * 설정 트리를 컴파일한 바이너리 스냅샷.
+ * <p>
+ * {@link #write(Configuration, File, boolean)}는 임의의 {@link Configuration}의 설정 트리를
+ * 변수 치환이 완료된 값으로 바이너리 파일에 기록하며, {@link #load(File)}는 해당 파일을 메모리
+ * 매핑하여 JSON 분석이나 변수 치환 없이 바로 {@link ConfigNode} 인터페이스로 제공한다.
+ * 각 노드는 버퍼에 기록된 레코드를 직접 읽으며, 하위 노드 객체는 처음 접근될 때 생성된다.
+ * <p>
+ * 스냅샷 파일은 16 바이트 헤더({@code magic, version, flags, 본문 길이})와 본문으로 구성되며,
+ * LZ4 압축된 경우는 본문이 {@link Lz4Compressions#compress(ByteBuffer)} 형식으로 기록된다.
+ * 압축된 스냅샷은 적재시 본문 전체가 압축 해제된다.
+ * <p>
+ * 스냅샷의 값들은 생성 시점에 치환이 완료된 값이므로, {@link #addVariable(String, String)}로
+ * 추가된 변수는 기존 설정 값에 영향을 주지 않는다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+public final class ConfigSnapshot implements Configuration {
+	private static final int MAGIC = 0x43464753;		// "CFGS"
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 16;
+	private static final int FLAG_LZ4 = 0x01;
+
+	static final byte TYPE_MAP = 1;
+	static final byte TYPE_ARRAY = 2;
+	static final byte TYPE_STRING = 3;
+	static final byte TYPE_LONG = 4;
+	static final byte TYPE_DOUBLE = 5;
+	static final byte TYPE_BOOLEAN = 6;
+
+	// 본문: [루트 노드 위치][노드 영역 시작 위치][문자열 수 n][문자열 위치 (n+1)개][문자열 바이트][노드 영역]
+	private final ByteBuffer m_body;
+	private final int m_nodeBase;
+	private final int m_stringCount;
+	private final String[] m_strings;		// 문자열 캐시. 문자열은 처음 사용될 때 decode된다.
+	private final ConfigNode m_root;
+	private final Properties m_variables = new Properties();
+	private volatile ConfigNameIndex m_nameIndex;
+
+	private ConfigSnapshot(ByteBuffer body) {
+		m_body = body;
+		int rootOffset = body.getInt(0);
+		m_nodeBase = body.getInt(4);
+		m_stringCount = body.getInt(8);
+		m_strings = new String[m_stringCount];
+		m_root = new SnapshotConfigNode(this, null, "", rootOffset);
+	}
+
+	/**
+	 * 주어진 설정의 스냅샷 파일을 생성한다.
+	 *
+	 * @param config	스냅샷을 생성할 설정.
+	 * @param file	생성될 스냅샷 파일.
+	 * @param compress	본문의 LZ4 압축 여부.
+	 * @throws IOException	파일 기록이 실패한 경우.
+	 */
+	public static void write(Configuration config, File file, boolean compress) throws IOException {
+		Preconditions.checkArgument(config != null, "Configuration is null");
+		Preconditions.checkArgument(file != null, "snapshot file is null");
+
+		ByteBuffer body = ByteBuffer.wrap(new Compiler().compile(config.getRoot()));
+		int bodyLength = body.remaining();
+		if ( compress ) {
+			body = Lz4Compressions.compress(body);
+		}
+
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(MAGIC).putInt(VERSION).putInt(compress ? FLAG_LZ4 : 0).putInt(bodyLength);
+		header.flip();
+		try ( FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+													StandardOpenOption.WRITE,
+													StandardOpenOption.TRUNCATE_EXISTING) ) {
+			while ( header.hasRemaining() ) {
+				channel.write(header);
+			}
+			while ( body.hasRemaining() ) {
+				channel.write(body);
+			}
+		}
+	}
+
+	/**
+	 * 주어진 스냅샷 파일을 적재한다.
+	 * <p>
+	 * 압축되지 않은 스냅샷은 메모리 매핑되어 사용된다.
+	 *
+	 * @param file	스냅샷 파일.
+	 * @return	스냅샷 설정.
+	 * @throws IOException	파일 읽기가 실패하거나 스냅샷 형식이 올바르지 않은 경우.
+	 */
+	public static ConfigSnapshot load(File file) throws IOException {
+		Preconditions.checkArgument(file != null, "snapshot file is null");
+
+		ByteBuffer mapped;
+		try ( FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ) ) {
+			mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		if ( mapped.remaining() < HEADER_SIZE || mapped.getInt(0) != MAGIC ) {
+			throw new IOException("not a config snapshot: file=" + file);
+		}
+		int version = mapped.getInt(4);
+		if ( version != VERSION ) {
+			throw new IOException("unsupported config snapshot version: " + version + ", file=" + file);
+		}
+		int flags = mapped.getInt(8);
+		int bodyLength = mapped.getInt(12);
+
+		mapped.position(HEADER_SIZE);
+		ByteBuffer body = mapped.slice();
+		if ( (flags & FLAG_LZ4) != 0 ) {
+			body = Lz4Compressions.decompress(body);
+		}
+		if ( body.remaining() != bodyLength ) {
+			throw new IOException("corrupted config snapshot: expected=" + bodyLength
+									+ ", actual=" + body.remaining() + ", file=" + file);
+		}
+
+		return new ConfigSnapshot(body);
+	}
+
+	@Override
+	public ConfigNode getRoot() {
+		return m_root;
+	}
+
+	@Override
+	public Set<ConfigNode> findConfigByName(String name) {
+		ConfigNameIndex index = m_nameIndex;
+		if ( index == null ) {
+			synchronized ( this ) {
+				index = m_nameIndex;
+				if ( index == null ) {
+					m_nameIndex = index = ConfigNameIndex.build(m_root);
+				}
+			}
+		}
+
+		return index.find(name);
+	}
+
+	@Override
+	public Properties getVariables() {
+		return m_variables;
+	}
+
+	@Override
+	public void addVariable(String name, String value) {
+		m_variables.put(name, value);
+	}
+
+	@Override
+	public void write(Object value, File file) throws IOException {
+		try ( Writer writer = new OutputStreamWriter(new FileOutputStream(file),
+													StandardCharsets.UTF_8) ) {
+			new Gson().toJson(value, writer);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("ConfigSnapshot[size=%d, strings=%d]", m_body.limit(), m_stringCount);
+	}
+
+	ByteBuffer getBody() {
+		return m_body;
+	}
+
+	// 노드 영역 기준 위치를 본문 기준 위치로 변환한다.
+	int toBodyOffset(int nodeOffset) {
+		return m_nodeBase + nodeOffset;
+	}
+
+	String getString(int idx) {
+		String str = m_strings[idx];
+		if ( str == null ) {
+			int start = m_body.getInt(12 + 4*idx);
+			int end = m_body.getInt(12 + 4*(idx+1));
+			byte[] bytes = new byte[end - start];
+			ByteBuffer dup = m_body.duplicate();
+			dup.position(start);
+			dup.get(bytes);
+			m_strings[idx] = str = new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		return str;
+	}
+
+	// 설정 트리를 스냅샷 본문으로 변환한다.
+	// 노드는 하위 노드들이 먼저 기록되는 후위 순서로 기록되어, 각 노드 레코드는 하위 노드들의
+	// 위치를 바로 기록할 수 있다.
+	private static final class Compiler {
+		private final Map<String,Integer> m_stringIndexes = new LinkedHashMap<>();
+		private final ByteArrayOutputStream m_nodeBytes = new ByteArrayOutputStream();
+		private final DataOutputStream m_nodes = new DataOutputStream(m_nodeBytes);
+
+		byte[] compile(ConfigNode root) throws IOException {
+			int rootOffset = writeNode(root);
+			m_nodes.flush();
+
+			ByteArrayOutputStream strBytes = new ByteArrayOutputStream();
+			int[] strOffsets = new int[m_stringIndexes.size() + 1];
+			int strBase = 12 + 4*strOffsets.length;
+			int idx = 0;
+			for ( String str: m_stringIndexes.keySet() ) {
+				strOffsets[idx++] = strBase + strBytes.size();
+				strBytes.write(str.getBytes(StandardCharsets.UTF_8));
+			}
+			strOffsets[idx] = strBase + strBytes.size();
+
+			ByteArrayOutputStream baos = new ByteArrayOutputStream(strOffsets[idx] + m_nodeBytes.size());
+			DataOutputStream out = new DataOutputStream(baos);
+			out.writeInt(rootOffset);
+			out.writeInt(strOffsets[idx]);
+			out.writeInt(m_stringIndexes.size());
+			for ( int offset: strOffsets ) {
+				out.writeInt(offset);
+			}
+			strBytes.writeTo(out);
+			m_nodeBytes.writeTo(out);
+			out.flush();
+
+			return baos.toByteArray();
+		}
+
+		private int writeNode(ConfigNode node) throws IOException {
+			if ( node.isMap() ) {
+				Set<String> names = node.names();
+				int[] nameIdxes = new int[names.size()];
+				int[] offsets = new int[names.size()];
+				int i = 0;
+				for ( String name: names ) {
+					nameIdxes[i] = intern(name);
+					offsets[i] = writeNode(node.get(name));
+					++i;
+				}
+
+				int offset = m_nodes.size();
+				m_nodes.writeByte(TYPE_MAP);
+				m_nodes.writeInt(offsets.length);
+				for ( i =0; i < offsets.length; ++i ) {
+					m_nodes.writeInt(nameIdxes[i]);
+					m_nodes.writeInt(offsets[i]);
+				}
+				return offset;
+			}
+			else if ( node.isArray() ) {
+				int[] offsets = new int[node.size()];
+				for ( int i =0; i < offsets.length; ++i ) {
+					offsets[i] = writeNode(node.get(i));
+				}
+
+				int offset = m_nodes.size();
+				m_nodes.writeByte(TYPE_ARRAY);
+				m_nodes.writeInt(offsets.length);
+				for ( int elmOffset: offsets ) {
+					m_nodes.writeInt(elmOffset);
+				}
+				return offset;
+			}
+			else if ( node.isPrimitive() ) {
+				return writePrimitive(node);
+			}
+			else {
+				throw new IllegalArgumentException("unsupported config node: path=" + node.getPath());
+			}
+		}
+
+		private int writePrimitive(ConfigNode node) throws IOException {
+			Object value = node.getValue();
+			int offset = m_nodes.size();
+			if ( value instanceof Boolean ) {
+				m_nodes.writeByte(TYPE_BOOLEAN);
+				m_nodes.writeBoolean((Boolean)value);
+			}
+			else if ( value instanceof Number ) {
+				String str = value.toString();
+				Long lvalue = isIntegral(str) ? parseLong(str) : null;
+				if ( lvalue != null ) {
+					m_nodes.writeByte(TYPE_LONG);
+					m_nodes.writeLong(lvalue);
+				}
+				else {
+					m_nodes.writeByte(TYPE_DOUBLE);
+					m_nodes.writeDouble(((Number)value).doubleValue());
+				}
+			}
+			else {
+				// 문자열 값은 변수 치환이 완료된 값을 기록한다.
+				int strIdx = intern(node.asString());
+				m_nodes.writeByte(TYPE_STRING);
+				m_nodes.writeInt(strIdx);
+			}
+
+			return offset;
+		}
+
+		private int intern(String str) {
+			return m_stringIndexes.computeIfAbsent(str, k -> m_stringIndexes.size());
+		}
+
+		private static boolean isIntegral(String str) {
+			return str.indexOf('.') < 0 && str.indexOf('e') < 0 && str.indexOf('E') < 0;
+		}
+
+		private static Long parseLong(String str) {
+			try {
+				return Long.parseLong(str);
+			}
+			catch ( NumberFormatException e ) {
+				return null;
+			}
+		}
+	}
+}
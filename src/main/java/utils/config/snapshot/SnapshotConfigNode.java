@@ -0,0 +1,292 @@
+package utils.config.snapshot;
+
+import static utils.config.snapshot.ConfigSnapshot.TYPE_ARRAY;
+import static utils.config.snapshot.ConfigSnapshot.TYPE_BOOLEAN;
+import static utils.config.snapshot.ConfigSnapshot.TYPE_DOUBLE;
+import static utils.config.snapshot.ConfigSnapshot.TYPE_LONG;
+import static utils.config.snapshot.ConfigSnapshot.TYPE_MAP;
+import static utils.config.snapshot.ConfigSnapshot.TYPE_STRING;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+
+import utils.config.ConfigNode;
+import utils.config.MissingConfigNode;
+
+/**
+ * {@link ConfigSnapshot} 본문에 기록된 노드 레코드를 직접 읽는 설정 노드.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+public class SnapshotConfigNode implements ConfigNode {
+	private final ConfigSnapshot m_snapshot;
+	private final ConfigNode m_parent;
+	private final String m_path;
+	private final int m_offset;		// 본문 기준 레코드 위치
+	private final byte m_type;
+
+	// 하위 노드 캐시. 스냅샷은 변경되지 않으므로 최초 접근시 한번만 생성한다.
+	private volatile Map<String,ConfigNode> m_members;
+	private volatile ConfigNode[] m_elements;
+
+	SnapshotConfigNode(ConfigSnapshot snapshot, ConfigNode parent, String path, int nodeOffset) {
+		m_snapshot = snapshot;
+		m_parent = parent;
+		m_path = path;
+		m_offset = snapshot.toBodyOffset(nodeOffset);
+		m_type = snapshot.getBody().get(m_offset);
+	}
+
+	@Override
+	public final ConfigSnapshot getConfiguration() {
+		return m_snapshot;
+	}
+
+	@Override
+	public final ConfigNode getParent() {
+		return m_parent;
+	}
+
+	@Override
+	public final String getPath() {
+		return m_path;
+	}
+
+	@Override
+	public boolean isMap() {
+		return m_type == TYPE_MAP;
+	}
+
+	@Override
+	public boolean isArray() {
+		return m_type == TYPE_ARRAY;
+	}
+
+	@Override
+	public boolean isPrimitive() {
+		return m_type != TYPE_MAP && m_type != TYPE_ARRAY;
+	}
+
+	@Override
+	public Object getValue() {
+		switch ( m_type ) {
+			case TYPE_MAP:
+				return getAsMap();
+			case TYPE_ARRAY:
+				return getAsArray();
+			case TYPE_STRING:
+				return asString();
+			case TYPE_LONG:
+				return body().getLong(m_offset+1);
+			case TYPE_DOUBLE:
+				return body().getDouble(m_offset+1);
+			case TYPE_BOOLEAN:
+				return asBoolean();
+			default:
+				throw new AssertionError();
+		}
+	}
+
+	@Override
+	public int asInt() {
+		return (m_type == TYPE_LONG) ? (int)body().getLong(m_offset+1) : asNumber().intValue();
+	}
+
+	@Override
+	public long asLong() {
+		return (m_type == TYPE_LONG) ? body().getLong(m_offset+1) : asNumber().longValue();
+	}
+
+	@Override
+	public float asFloat() {
+		return asNumber().floatValue();
+	}
+
+	@Override
+	public double asDouble() {
+		return (m_type == TYPE_DOUBLE) ? body().getDouble(m_offset+1) : asNumber().doubleValue();
+	}
+
+	@Override
+	public short asShort() {
+		return asNumber().shortValue();
+	}
+
+	@Override
+	public byte asByte() {
+		return asNumber().byteValue();
+	}
+
+	@Override
+	public boolean asBoolean() {
+		switch ( m_type ) {
+			case TYPE_BOOLEAN:
+				return body().get(m_offset+1) != 0;
+			case TYPE_STRING:
+				return Boolean.parseBoolean(asString());
+			default:
+				throw new IllegalStateException("Not BOOLEAN node: path=" + m_path);
+		}
+	}
+
+	@Override
+	public String asString() {
+		switch ( m_type ) {
+			case TYPE_STRING:
+				return m_snapshot.getString(body().getInt(m_offset+1));
+			case TYPE_LONG:
+				return Long.toString(body().getLong(m_offset+1));
+			case TYPE_DOUBLE:
+				return Double.toString(body().getDouble(m_offset+1));
+			case TYPE_BOOLEAN:
+				return Boolean.toString(asBoolean());
+			default:
+				throw new IllegalStateException("Not PRIMITIVE node: path=" + m_path);
+		}
+	}
+
+	@Override
+	public ConfigNode asReference() {
+		return traverse(asString());
+	}
+
+	@Override
+	public Object[] getAsArray() {
+		Preconditions.checkState(isArray(), "Not ARRAY node: path=%s", m_path);
+
+		Object[] values = new Object[size()];
+		for ( int i =0; i < values.length; ++i ) {
+			values[i] = get(i).getValue();
+		}
+		return values;
+	}
+
+	@Override
+	public Map<String,Object> getAsMap() {
+		Preconditions.checkState(isMap(), "Not MAP node: path=%s", m_path);
+
+		return getMembers().entrySet().stream()
+							.collect(Collectors.toMap(Map.Entry::getKey, ent -> ent.getValue().getValue()));
+	}
+
+	@Override
+	public Set<String> names() {
+		return getMembers().keySet();
+	}
+
+	@Override
+	public ConfigNode get(String name) {
+		ConfigNode member = getMembers().get(name);
+		return (member != null) ? member
+								: new MissingConfigNode(m_snapshot, ConfigNode.toPath(getPath(), name));
+	}
+
+	@Override
+	public boolean has(String name) {
+		return getMembers().containsKey(name);
+	}
+
+	@Override
+	public int size() {
+		Preconditions.checkState(isArray(), "Not ARRAY node: path=%s", m_path);
+
+		return body().getInt(m_offset+1);
+	}
+
+	@Override
+	public ConfigNode get(int index) {
+		ConfigNode[] elements = m_elements;
+		if ( elements == null ) {
+			Preconditions.checkState(isArray(), "Not ARRAY node: path=%s", m_path);
+
+			synchronized ( this ) {
+				if ( (elements = m_elements) == null ) {
+					ByteBuffer body = body();
+					elements = new ConfigNode[body.getInt(m_offset+1)];
+					for ( int i =0; i < elements.length; ++i ) {
+						int elmOffset = body.getInt(m_offset + 5 + 4*i);
+						elements[i] = new SnapshotConfigNode(m_snapshot, this, getPath() + "[" + i + "]",
+															elmOffset);
+					}
+					m_elements = elements;
+				}
+			}
+		}
+
+		return elements[index];
+	}
+
+	// 하위 노드들을 기록된 순서대로 담은 변경 불가능한 map을 반환한다.
+	private Map<String,ConfigNode> getMembers() {
+		Map<String,ConfigNode> members = m_members;
+		if ( members == null ) {
+			Preconditions.checkState(isMap(), "Not MAP node: path=%s", m_path);
+
+			synchronized ( this ) {
+				if ( (members = m_members) == null ) {
+					ByteBuffer body = body();
+					int count = body.getInt(m_offset+1);
+					members = Maps.newLinkedHashMapWithExpectedSize(count);
+					for ( int i =0; i < count; ++i ) {
+						int entry = m_offset + 5 + 8*i;
+						String name = m_snapshot.getString(body.getInt(entry));
+						members.put(name, new SnapshotConfigNode(m_snapshot, this,
+																ConfigNode.toPath(getPath(), name),
+																body.getInt(entry+4)));
+					}
+					m_members = members = Collections.unmodifiableMap(members);
+				}
+			}
+		}
+
+		return members;
+	}
+
+	@Override
+	public String toString() {
+		if ( isMap() ) {
+			return getMembers().entrySet().stream()
+								.map(ent -> String.format("%s=%s", ent.getKey(), ent.getValue()))
+								.collect(Collectors.joining(", ", "{", "}"));
+		}
+		else if ( isArray() ) {
+			StringBuilder builder = new StringBuilder("[");
+			for ( int i =0; i < size(); ++i ) {
+				builder.append((i > 0) ? "," : "").append(get(i));
+			}
+			return builder.append(']').toString();
+		}
+		else {
+			return asString();
+		}
+	}
+
+	private ByteBuffer body() {
+		return m_snapshot.getBody();
+	}
+
+	private Number asNumber() {
+		switch ( m_type ) {
+			case TYPE_LONG:
+				return body().getLong(m_offset+1);
+			case TYPE_DOUBLE:
+				return body().getDouble(m_offset+1);
+			case TYPE_STRING:
+				String str = asString();
+				try {
+					return Long.parseLong(str);
+				}
+				catch ( NumberFormatException e ) {
+					return Double.parseDouble(str);
+				}
+			default:
+				throw new IllegalStateException("Not NUMBER node: path=" + m_path);
+		}
+	}
+}
@@ -0,0 +1,199 @@
+package utils.io;
+
+import static utils.io.Lz4Compressions.HEADER_SIZE;
+
+import java.nio.ByteBuffer;
+
+import net.jpountz.lz4.LZ4Compressor;
+
+/**
+ * 원본 데이터 블럭을 {@link Lz4Compressions} 블럭 형식([rawLen][compressedLen][payload])으로
+ * 인코딩하는 클래스.
+ * <p>
+ * 압축 스트림, 채널 등 데이터 공급 방식이 서로 다른 압축기들이 블럭 인코딩과 관련된 상태
+ * (압축 수준, 압축 생략 여부, 블럭 색인)를 공유하기 위해 사용한다. 블럭 압축 통계는
+ * 생성시 주어진 {@link Lz4Metrics}에 기록된다.
+ * 쓰레드 안전하지 않다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+final class Lz4BlockEncoder {
+	private static final int SAMPLE_BLOCKS = 4;
+	private static final int PROBE_INTERVAL = 64;
+
+	private final int m_blockSize;
+	private final int m_level;
+	private final LZ4Compressor m_compressor;
+	private final boolean m_skipIncompressible;
+	private final boolean m_checksum;
+	private final Lz4BlockIndex.Builder m_index;
+
+	private boolean m_bypass = false;		// 압축 생략 상태 여부
+	private long m_storedCount =0;
+
+	private final Lz4Metrics m_metrics;
+	private long m_blockCount =0;
+
+	Lz4BlockEncoder(Lz4CompressOptions opts, Lz4Metrics metrics) {
+		m_blockSize = opts.blockSize();
+		m_level = opts.level();
+		m_compressor = Lz4Compressions.getCompressor(m_level);
+		m_skipIncompressible = opts.skipIncompressible();
+		m_checksum = opts.checksum();
+		m_index = opts.writeIndex() ? new Lz4BlockIndex.Builder(16) : null;
+		m_metrics = metrics;
+	}
+
+	int getBlockSize() {
+		return m_blockSize;
+	}
+
+	/**
+	 * 하나의 블럭을 인코딩할 때 필요한 최대 버퍼 크기를 반환한다.
+	 *
+	 * @return	헤더를 포함한 최대 블럭 크기.
+	 */
+	int getMaxEncodedLength() {
+		int length = HEADER_SIZE + m_compressor.maxCompressedLength(m_blockSize);
+		return m_checksum ? length + Lz4Compressions.CHECKSUM_SIZE : length;
+	}
+
+	long getBlockCount() {
+		return m_blockCount;
+	}
+
+	/**
+	 * 주어진 원본 데이터를 하나의 블럭으로 인코딩하여 대상 배열에 기록한다.
+	 * <p>
+	 * 대상 배열에는 최소한 {@link #getMaxEncodedLength()} 만큼의 공간이 있어야 한다.
+	 *
+	 * @param raw	원본 데이터를 담은 배열.
+	 * @param off	원본 데이터 시작 위치.
+	 * @param len	원본 데이터 크기. {@link #getBlockSize()}보다 클 수 없다.
+	 * @param dest	인코딩된 블럭을 기록할 배열.
+	 * @param destOff	기록 시작 위치.
+	 * @return	헤더를 포함한 인코딩된 블럭의 크기.
+	 */
+	int encode(byte[] raw, int off, int len, byte[] dest, int destOff) {
+		boolean compress = shouldCompress();
+		int length = encodeBlock(raw, off, len, dest, destOff, compress);
+		complete(dest, destOff, compress);
+
+		return length;
+	}
+
+	/**
+	 * 압축을 시도하여 인코딩된 블럭을 출력 순서대로 확정한다.
+	 * <p>
+	 * 블럭은 {@link #encodeBlock(byte[], int, int, byte[], int, boolean)}에 압축 시도 여부를
+	 * {@code true}로 하여 인코딩된 것이어야 한다. 압축 생략 상태라서
+	 * {@link #encode(byte[], int, int, byte[], int)}였다면 압축이 시도되지 않았을 블럭은
+	 * 원본 그대로 다시 인코딩되므로, 병렬로 인코딩된 블럭들도 순차 인코딩과 동일한 결과가 된다.
+	 *
+	 * @param raw	블럭의 원본 데이터를 담은 배열.
+	 * @param off	원본 데이터 시작 위치.
+	 * @param len	원본 데이터 크기.
+	 * @param dest	인코딩된 블럭이 담긴 배열.
+	 * @param destOff	블럭 헤더의 시작 위치.
+	 * @return	헤더를 포함한 최종 블럭의 크기.
+	 */
+	int commit(byte[] raw, int off, int len, byte[] dest, int destOff) {
+		boolean compress = shouldCompress();
+		int length;
+		if ( compress ) {
+			int payloadWord = Lz4Compressions.getIntBE(ByteBuffer.wrap(dest), destOff + 4);
+			length = HEADER_SIZE + Lz4Compressions.getBlockLength(payloadWord);
+		}
+		else {
+			length = writeBlock(raw, off, len, dest, destOff, false);
+		}
+		complete(dest, destOff, compress);
+
+		return length;
+	}
+
+	/**
+	 * 주어진 원본 데이터를 하나의 블럭으로 인코딩하여 대상 배열에 기록한다.
+	 * <p>
+	 * {@link #encode(byte[], int, int, byte[], int)}와 달리 인코더의 상태(압축 생략 여부,
+	 * 블럭 색인)를 변경하지 않기 때문에 여러 쓰레드에서 동시에 호출할 수 있다.
+	 * 인코딩된 블럭은 출력 순서대로 {@link #append(byte[], int)}를 호출하여 인코더에
+	 * 등록하여야 한다.
+	 *
+	 * @param compress	압축 시도 여부. {@code false}인 경우는 원본 그대로 저장된다.
+	 * @return	헤더를 포함한 인코딩된 블럭의 크기.
+	 */
+	int encodeBlock(byte[] raw, int off, int len, byte[] dest, int destOff, boolean compress) {
+		long started = System.nanoTime();
+		int length = writeBlock(raw, off, len, dest, destOff, compress);
+		m_metrics.recordCompress(len, length, System.nanoTime() - started);
+
+		return length;
+	}
+
+	/**
+	 * 인코딩된 블럭을 출력 순서대로 등록하여 블럭 색인을 갱신한다.
+	 *
+	 * @param block	인코딩된 블럭이 담긴 배열.
+	 * @param off	블럭 헤더의 시작 위치.
+	 */
+	void append(byte[] block, int off) {
+		if ( m_index != null ) {
+			ByteBuffer header = ByteBuffer.wrap(block, off, HEADER_SIZE);
+			int len = Lz4Compressions.getBlockLength(header.getInt());
+			m_index.add(len, header.getInt());
+		}
+
+		++m_blockCount;
+	}
+
+	/**
+	 * 지금까지 인코딩된 블럭들에 대한 색인 트레일러를 반환한다.
+	 *
+	 * @return	트레일러 데이터가 담긴 버퍼. 색인 기록이 설정되지 않은 경우는 {@code null}.
+	 */
+	ByteBuffer getIndexTrailer() {
+		return (m_index != null) ? m_index.toTrailer() : null;
+	}
+
+	private boolean shouldCompress() {
+		return !m_bypass || (m_blockCount % PROBE_INTERVAL) == 0;
+	}
+
+	private int writeBlock(byte[] raw, int off, int len, byte[] dest, int destOff, boolean compress) {
+		int payloadWord = Lz4Compressions.compressPayload(m_compressor, raw, off, len, dest,
+															destOff + HEADER_SIZE, compress);
+		if ( m_checksum ) {
+			payloadWord = Lz4Compressions.appendChecksum(dest, destOff + HEADER_SIZE, payloadWord);
+		}
+		ByteBuffer.wrap(dest, destOff, HEADER_SIZE)
+					.putInt(Lz4Compressions.encodeRawLength(len, m_level))
+					.putInt(payloadWord);
+
+		return HEADER_SIZE + Lz4Compressions.getBlockLength(payloadWord);
+	}
+
+	private void complete(byte[] dest, int destOff, boolean tried) {
+		if ( m_skipIncompressible ) {
+			int payloadWord = Lz4Compressions.getIntBE(ByteBuffer.wrap(dest), destOff + 4);
+			updateBypassState(tried, Lz4Compressions.isStoredBlock(payloadWord));
+		}
+		append(dest, destOff);
+	}
+
+	// 스트림 앞 부분 SAMPLE_BLOCKS개의 블럭이 모두 압축되지 않으면 이후 압축을 생략하고,
+	// 생략 중에는 PROBE_INTERVAL 블럭마다 압축을 다시 시도하여 압축 효과가 있으면 재개한다.
+	private void updateBypassState(boolean tried, boolean stored) {
+		if ( !tried ) {
+			return;
+		}
+
+		if ( m_bypass ) {
+			m_bypass = stored;
+		}
+		else if ( m_blockCount < SAMPLE_BLOCKS ) {
+			m_storedCount = stored ? m_storedCount + 1 : 0;
+			m_bypass = (m_storedCount == SAMPLE_BLOCKS);
+		}
+	}
+}
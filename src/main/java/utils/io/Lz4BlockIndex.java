@@ -0,0 +1,371 @@
+package utils.io;
+
+import static utils.io.Lz4Compressions.HEADER_SIZE;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import utils.Utilities;
+
+/**
+ * {@link Lz4Compressions} 블럭 형식으로 압축된 데이터의 블럭 위치 색인.
+ * <p>
+ * 색인은 각 블럭의 압축 데이터 내 시작 위치(블럭 헤더 위치)와 압축 해제된 데이터에서의
+ * 시작 위치를 유지하며, 압축 해제된 데이터의 임의 위치를 포함하는 블럭을 찾는 데 사용된다.
+ * <p>
+ * 색인은 압축 데이터의 블럭 헤더들을 읽어 생성하거나, 압축시 선택적으로 기록되는
+ * 색인 트레일러로부터 적재할 수 있다. 트레일러는 다음과 같은 형식으로 마지막 블럭 뒤에 붙는다.
+ * <pre>
+ * [INDEX_MARK:int][trailerLength:int]
+ * [blockCount:int]([rawLength:int][compressedLength:int]){blockCount}
+ * [dataLength:long][TRAILER_MAGIC:long]
+ * </pre>
+ * 블럭 헤더의 첫번째 값이 {@link #INDEX_MARK}인 경우 압축 해제 스트림은 이를
+ * 데이터의 끝으로 간주한다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+public final class Lz4BlockIndex {
+	static final int INDEX_MARK = -1;
+	static final long TRAILER_MAGIC = 0x4C5A34494E444558L;	// "LZ4INDEX"
+	private static final int TAIL_SIZE = 8 + 8;
+
+	private final int m_blockCount;
+	private final long[] m_offsets;			// 각 블럭 헤더의 시작 위치 (크기: blockCount + 1)
+	private final long[] m_rawOffsets;		// 각 블럭의 압축 해제된 데이터 시작 위치 (크기: blockCount + 1)
+	private final BitSet m_stored;			// 압축되지 않고 원본 그대로 저장된 블럭들
+	private final BitSet m_checksummed;		// 체크섬이 기록된 블럭들
+
+	private Lz4BlockIndex(int blockCount, long[] offsets, long[] rawOffsets, BitSet stored,
+							BitSet checksummed) {
+		m_blockCount = blockCount;
+		m_offsets = offsets;
+		m_rawOffsets = rawOffsets;
+		m_stored = stored;
+		m_checksummed = checksummed;
+	}
+
+	public int getBlockCount() {
+		return m_blockCount;
+	}
+
+	/**
+	 * 블럭들이 차지하는 압축 데이터의 전체 크기를 반환한다. 트레일러는 포함되지 않는다.
+	 *
+	 * @return	압축 데이터 크기.
+	 */
+	public long getCompressedLength() {
+		return m_offsets[m_blockCount];
+	}
+
+	/**
+	 * 압축 해제된 데이터의 전체 크기를 반환한다.
+	 *
+	 * @return	압축 해제된 데이터 크기.
+	 */
+	public long getRawLength() {
+		return m_rawOffsets[m_blockCount];
+	}
+
+	public long getBlockOffset(int blockIdx) {
+		return m_offsets[blockIdx];
+	}
+
+	public int getBlockCompressedLength(int blockIdx) {
+		return (int)(m_offsets[blockIdx+1] - m_offsets[blockIdx] - HEADER_SIZE);
+	}
+
+	/**
+	 * 주어진 블럭이 압축되지 않고 원본 그대로 저장되었는지 여부를 반환한다.
+	 *
+	 * @param blockIdx	블럭 번호.
+	 * @return	원본 그대로 저장된 경우는 {@code true}.
+	 */
+	public boolean isBlockStored(int blockIdx) {
+		return m_stored.get(blockIdx);
+	}
+
+	/**
+	 * 주어진 블럭에 체크섬이 기록되어 있는지 여부를 반환한다.
+	 *
+	 * @param blockIdx	블럭 번호.
+	 * @return	체크섬이 기록된 경우는 {@code true}.
+	 */
+	public boolean hasBlockChecksum(int blockIdx) {
+		return m_checksummed.get(blockIdx);
+	}
+
+	/**
+	 * 주어진 블럭의 헤더에 기록된 압축 길이 값을 속성 bit들과 함께 반환한다.
+	 */
+	int getBlockCompressedLengthWord(int blockIdx) {
+		int word = getBlockCompressedLength(blockIdx);
+		if ( m_stored.get(blockIdx) ) {
+			word |= Lz4Compressions.STORED_FLAG;
+		}
+		if ( m_checksummed.get(blockIdx) ) {
+			word |= Lz4Compressions.CHECKSUM_FLAG;
+		}
+		return word;
+	}
+
+	public long getBlockRawOffset(int blockIdx) {
+		return m_rawOffsets[blockIdx];
+	}
+
+	public int getBlockRawLength(int blockIdx) {
+		return (int)(m_rawOffsets[blockIdx+1] - m_rawOffsets[blockIdx]);
+	}
+
+	/**
+	 * 압축 해제된 데이터의 주어진 위치를 포함하는 블럭의 번호를 반환한다.
+	 *
+	 * @param rawPos	압축 해제된 데이터에서의 위치.
+	 * @return	블럭 번호. 주어진 위치가 데이터 범위를 벗어난 경우는 -1.
+	 */
+	public int findBlock(long rawPos) {
+		if ( rawPos < 0 || rawPos >= getRawLength() ) {
+			return -1;
+		}
+
+		int idx = Arrays.binarySearch(m_rawOffsets, 0, m_blockCount+1, rawPos);
+		if ( idx < 0 ) {
+			idx = -idx - 2;
+		}
+		// 길이가 0인 블럭들은 건너뛴다.
+		while ( m_rawOffsets[idx+1] == rawPos ) {
+			++idx;
+		}
+
+		return idx;
+	}
+
+	/**
+	 * 압축 데이터를 독립적으로 압축 해제할 수 있는 최대 {@code nsplits}개의 구간으로 나눈다.
+	 * <p>
+	 * 구간은 블럭 경계에서 나뉘며, 각 구간의 압축 데이터 크기가 가능한 비슷하도록 나눈다.
+	 * 블럭 수가 {@code nsplits}보다 적은 경우는 블럭 수만큼의 구간이 생성되며,
+	 * 빈 구간은 생성되지 않는다.
+	 *
+	 * @param nsplits	최대 구간 수.
+	 * @return	압축 데이터 순서대로 정렬된 구간 리스트.
+	 */
+	public List<Lz4Split> split(int nsplits) {
+		Utilities.checkArgument(nsplits > 0, "invalid split count: " + nsplits);
+
+		List<Lz4Split> splits = new ArrayList<>(Math.min(nsplits, m_blockCount));
+		int first = 0;
+		for ( int i =1; i <= nsplits && first < m_blockCount; ++i ) {
+			// 남은 구간들이 각각 최소 하나의 블럭을 갖도록 한다.
+			int maxEnd = m_blockCount - (nsplits - i);
+			long target = getCompressedLength() * i / nsplits;
+			int end = first + 1;
+			while ( end < maxEnd && m_offsets[end] < target ) {
+				++end;
+			}
+			if ( i == nsplits ) {
+				end = m_blockCount;
+			}
+
+			splits.add(new Lz4Split(this, first, end));
+			first = end;
+		}
+
+		return splits;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Lz4BlockIndex[blocks=%d, %d -> %d]", m_blockCount,
+								getRawLength(), getCompressedLength());
+	}
+
+	/**
+	 * 주어진 파일 채널의 압축 데이터에 대한 블럭 색인을 생성한다.
+	 * <p>
+	 * 파일에 색인 트레일러가 기록되어 있으면 이를 적재하고, 그렇지 않은 경우는
+	 * 파일의 블럭 헤더들을 차례대로 읽어 색인을 생성한다.
+	 * 압축 데이터는 파일의 처음부터 시작된다고 가정한다.
+	 *
+	 * @param channel	압축 데이터 파일 채널.
+	 * @return	블럭 색인.
+	 */
+	public static Lz4BlockIndex of(FileChannel channel) throws IOException {
+		Lz4BlockIndex index = loadTrailer(channel);
+		return (index != null) ? index : scan(channel);
+	}
+
+	/**
+	 * 주어진 파일 채널에 기록된 색인 트레일러를 적재한다.
+	 *
+	 * @param channel	압축 데이터 파일 채널.
+	 * @return	블럭 색인. 트레일러가 없는 경우는 {@code null}.
+	 */
+	public static Lz4BlockIndex loadTrailer(FileChannel channel) throws IOException {
+		long size = channel.size();
+		if ( size < HEADER_SIZE + 4 + TAIL_SIZE ) {
+			return null;
+		}
+
+		ByteBuffer tail = readFully(channel, size - TAIL_SIZE, TAIL_SIZE);
+		long dataLength = tail.getLong();
+		if ( tail.getLong() != TRAILER_MAGIC || dataLength < 0
+			|| dataLength > size - HEADER_SIZE - 4 - TAIL_SIZE ) {
+			return null;
+		}
+
+		ByteBuffer header = readFully(channel, dataLength, HEADER_SIZE + 4);
+		int mark = header.getInt();
+		int trailerLength = header.getInt();
+		int blockCount = header.getInt();
+		if ( mark != INDEX_MARK || dataLength + HEADER_SIZE + trailerLength != size
+			|| trailerLength != 4 + blockCount * 8L + TAIL_SIZE ) {
+			return null;
+		}
+
+		ByteBuffer lengths = readFully(channel, dataLength + HEADER_SIZE + 4, blockCount * 8);
+		Builder builder = new Builder(blockCount);
+		for ( int i =0; i < blockCount; ++i ) {
+			builder.add(lengths.getInt(), lengths.getInt());
+		}
+		Lz4BlockIndex index = builder.build();
+		if ( index.getCompressedLength() != dataLength ) {
+			throw new IOException("corrupted index trailer: data-length=" + dataLength
+									+ ", indexed=" + index.getCompressedLength());
+		}
+
+		return index;
+	}
+
+	/**
+	 * 주어진 파일 채널의 블럭 헤더들을 차례대로 읽어 블럭 색인을 생성한다.
+	 *
+	 * @param channel	압축 데이터 파일 채널.
+	 * @return	블럭 색인.
+	 */
+	public static Lz4BlockIndex scan(FileChannel channel) throws IOException {
+		long size = channel.size();
+
+		Builder builder = new Builder(16);
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		long pos = 0;
+		while ( pos < size ) {
+			if ( size - pos < HEADER_SIZE ) {
+				throw new EOFException("truncated block header: offset=" + pos);
+			}
+
+			header.clear();
+			readFully(channel, pos, header);
+			int len = header.getInt();
+			int compressedLen = header.getInt();
+			if ( len == INDEX_MARK ) {
+				break;
+			}
+			len = Lz4Compressions.getBlockLength(len);
+			int payloadLen = Lz4Compressions.getBlockLength(compressedLen);
+			if ( pos + HEADER_SIZE + payloadLen > size ) {
+				throw new EOFException("truncated block: offset=" + pos);
+			}
+
+			builder.add(len, compressedLen);
+			pos += HEADER_SIZE + payloadLen;
+		}
+
+		return builder.build();
+	}
+
+	private static ByteBuffer readFully(FileChannel channel, long pos, int length) throws IOException {
+		ByteBuffer buf = ByteBuffer.allocate(length);
+		readFully(channel, pos, buf);
+		return buf;
+	}
+
+	static void readFully(FileChannel channel, long pos, ByteBuffer buf) throws IOException {
+		while ( buf.hasRemaining() ) {
+			int nread = channel.read(buf, pos);
+			if ( nread < 0 ) {
+				throw new EOFException("unexpected end of file: offset=" + pos);
+			}
+			pos += nread;
+		}
+		buf.flip();
+	}
+
+	/**
+	 * 압축 블럭들을 기록하면서 블럭 색인과 트레일러를 생성하기 위한 빌더.
+	 */
+	static final class Builder {
+		private int[] m_lengths;
+		private int[] m_compressedLengths;
+		private int m_count = 0;
+
+		Builder(int capacity) {
+			Utilities.checkArgument(capacity >= 0, "invalid capacity: " + capacity);
+
+			m_lengths = new int[Math.max(capacity, 1)];
+			m_compressedLengths = new int[Math.max(capacity, 1)];
+		}
+
+		// compressedLength에는 블럭 헤더에 기록된 압축 길이 값을 속성 bit들과 함께 전달한다.
+		Builder add(int length, int compressedLength) {
+			if ( m_count == m_lengths.length ) {
+				m_lengths = Arrays.copyOf(m_lengths, m_count * 2);
+				m_compressedLengths = Arrays.copyOf(m_compressedLengths, m_count * 2);
+			}
+			m_lengths[m_count] = length;
+			m_compressedLengths[m_count] = compressedLength;
+			++m_count;
+
+			return this;
+		}
+
+		Lz4BlockIndex build() {
+			long[] offsets = new long[m_count+1];
+			long[] rawOffsets = new long[m_count+1];
+			BitSet stored = new BitSet(m_count);
+			BitSet checksummed = new BitSet(m_count);
+			for ( int i =0; i < m_count; ++i ) {
+				offsets[i+1] = offsets[i] + HEADER_SIZE
+								+ Lz4Compressions.getBlockLength(m_compressedLengths[i]);
+				rawOffsets[i+1] = rawOffsets[i] + m_lengths[i];
+				if ( Lz4Compressions.isStoredBlock(m_compressedLengths[i]) ) {
+					stored.set(i);
+				}
+				if ( Lz4Compressions.hasChecksum(m_compressedLengths[i]) ) {
+					checksummed.set(i);
+				}
+			}
+
+			return new Lz4BlockIndex(m_count, offsets, rawOffsets, stored, checksummed);
+		}
+
+		/**
+		 * 지금까지 추가된 블럭들에 대한 색인 트레일러를 생성한다.
+		 *
+		 * @return	트레일러 데이터가 담긴 버퍼 (flip된 상태).
+		 */
+		ByteBuffer toTrailer() {
+			long dataLength = 0;
+			for ( int i =0; i < m_count; ++i ) {
+				dataLength += HEADER_SIZE + Lz4Compressions.getBlockLength(m_compressedLengths[i]);
+			}
+
+			int trailerLength = 4 + m_count * 8 + TAIL_SIZE;
+			ByteBuffer trailer = ByteBuffer.allocate(HEADER_SIZE + trailerLength);
+			trailer.putInt(INDEX_MARK).putInt(trailerLength);
+			trailer.putInt(m_count);
+			for ( int i =0; i < m_count; ++i ) {
+				trailer.putInt(m_lengths[i]).putInt(m_compressedLengths[i]);
+			}
+			trailer.putLong(dataLength).putLong(TRAILER_MAGIC);
+
+			return trailer.flip();
+		}
+	}
+}
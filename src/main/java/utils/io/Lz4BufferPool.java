@@ -0,0 +1,154 @@
+package utils.io;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import utils.UnitUtils;
+import utils.Utilities;
+
+/**
+ * LZ4 압축/해제 스트림들이 사용하는 byte 배열 버퍼의 공유 풀.
+ * <p>
+ * 버퍼는 크기별로 관리되며, 스트림이 생성될 때 빌려가고 close될 때 반환된다.
+ * 풀에 유지되는 버퍼의 크기별 최대 갯수와 전체 바이트 수는 제한되며, 제한을 넘어서
+ * 반환되는 버퍼는 버려진다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+public final class Lz4BufferPool {
+	private static final int DEFAULT_MAX_BUFFERS_PER_SIZE = 64;
+	private static final long DEFAULT_MAX_POOLED_BYTES = 64L * 1024 * 1024;
+	private static final Lz4BufferPool s_shared = new Lz4BufferPool(DEFAULT_MAX_BUFFERS_PER_SIZE,
+																	DEFAULT_MAX_POOLED_BYTES);
+
+	private final int m_maxBuffersPerSize;
+	private final long m_maxPooledBytes;
+	private final Map<Integer,Bucket> m_buckets = new ConcurrentHashMap<>();
+	private final AtomicLong m_pooledBytes = new AtomicLong(0);
+
+	private final LongAdder m_hitCount = new LongAdder();
+	private final LongAdder m_missCount = new LongAdder();
+	private final LongAdder m_discardCount = new LongAdder();
+
+	/**
+	 * 모든 LZ4 스트림들이 공유하는 버퍼 풀을 반환한다.
+	 *
+	 * @return	공유 버퍼 풀.
+	 */
+	public static Lz4BufferPool shared() {
+		return s_shared;
+	}
+
+	public Lz4BufferPool(int maxBuffersPerSize, long maxPooledBytes) {
+		Utilities.checkArgument(maxBuffersPerSize >= 0, "invalid max buffer count: " + maxBuffersPerSize);
+		Utilities.checkArgument(maxPooledBytes >= 0, "invalid max pooled bytes: " + maxPooledBytes);
+
+		m_maxBuffersPerSize = maxBuffersPerSize;
+		m_maxPooledBytes = maxPooledBytes;
+	}
+
+	/**
+	 * 주어진 크기의 버퍼를 빌린다.
+	 * <p>
+	 * 풀에 해당 크기의 버퍼가 없는 경우는 새로 할당된다. 반환된 버퍼의 내용은 초기화되지 않는다.
+	 *
+	 * @param length	버퍼 크기.
+	 * @return	버퍼.
+	 */
+	public byte[] borrow(int length) {
+		Utilities.checkArgument(length >= 0, "invalid buffer length: " + length);
+
+		Bucket bucket = m_buckets.get(length);
+		if ( bucket != null ) {
+			byte[] buf = bucket.m_buffers.pollFirst();
+			if ( buf != null ) {
+				bucket.m_count.decrementAndGet();
+				m_pooledBytes.addAndGet(-length);
+				m_hitCount.increment();
+
+				return buf;
+			}
+		}
+
+		m_missCount.increment();
+		return new byte[length];
+	}
+
+	/**
+	 * 빌린 버퍼를 풀에 반환한다.
+	 *
+	 * @param buf	반환할 버퍼. {@code null}이거나 길이가 0인 경우는 무시된다.
+	 */
+	public void release(byte[] buf) {
+		if ( buf == null || buf.length == 0 ) {
+			return;
+		}
+
+		int length = buf.length;
+		if ( m_pooledBytes.addAndGet(length) > m_maxPooledBytes ) {
+			m_pooledBytes.addAndGet(-length);
+			m_discardCount.increment();
+			return;
+		}
+
+		Bucket bucket = m_buckets.computeIfAbsent(length, k -> new Bucket());
+		if ( bucket.m_count.incrementAndGet() > m_maxBuffersPerSize ) {
+			bucket.m_count.decrementAndGet();
+			m_pooledBytes.addAndGet(-length);
+			m_discardCount.increment();
+			return;
+		}
+		bucket.m_buffers.addFirst(buf);
+	}
+
+	/**
+	 * 풀에 유지된 모든 버퍼를 버린다. 통계 정보는 유지된다.
+	 */
+	public void clear() {
+		for ( Bucket bucket: m_buckets.values() ) {
+			byte[] buf;
+			while ( (buf = bucket.m_buffers.pollFirst()) != null ) {
+				bucket.m_count.decrementAndGet();
+				m_pooledBytes.addAndGet(-buf.length);
+			}
+		}
+	}
+
+	public long getHitCount() {
+		return m_hitCount.sum();
+	}
+
+	public long getMissCount() {
+		return m_missCount.sum();
+	}
+
+	public long getDiscardCount() {
+		return m_discardCount.sum();
+	}
+
+	public long getPooledBytes() {
+		return m_pooledBytes.get();
+	}
+
+	public double getHitRatio() {
+		long hits = getHitCount();
+		long total = hits + getMissCount();
+		return (total > 0) ? (double)hits / total : 0;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Lz4BufferPool[pooled=%s, hit=%d, miss=%d, discard=%d, ratio=%.1f%%]",
+								UnitUtils.toByteSizeString(getPooledBytes()), getHitCount(),
+								getMissCount(), getDiscardCount(), getHitRatio() * 100);
+	}
+
+	private static final class Bucket {
+		private final ConcurrentLinkedDeque<byte[]> m_buffers = new ConcurrentLinkedDeque<>();
+		private final AtomicInteger m_count = new AtomicInteger(0);
+	}
+}
@@ -0,0 +1,112 @@
+package utils.io;
+
+import utils.Utilities;
+
+/**
+ * {@link Lz4Compressions#compress(java.io.InputStream, Lz4CompressOptions)}로 생성되는 압축 스트림의 설정.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+public final class Lz4CompressOptions {
+	private int m_blockSize = Lz4Compressions.DEFAULT_BLOCK_SIZE;
+	private int m_level = Lz4Compressions.LEVEL_FAST;
+	private boolean m_writeIndex = false;
+	private boolean m_skipIncompressible = false;
+	private boolean m_checksum = false;
+
+	public static Lz4CompressOptions create() {
+		return new Lz4CompressOptions();
+	}
+
+	private Lz4CompressOptions() { }
+
+	public int blockSize() {
+		return m_blockSize;
+	}
+
+	public Lz4CompressOptions blockSize(int blockSize) {
+		Utilities.checkArgument(blockSize > 0 && blockSize <= Lz4Compressions.MAX_BLOCK_SIZE,
+								"invalid block-size: " + blockSize);
+
+		m_blockSize = blockSize;
+		return this;
+	}
+
+	public int level() {
+		return m_level;
+	}
+
+	/**
+	 * 압축 수준을 설정한다.
+	 *
+	 * @param level	{@link Lz4Compressions#LEVEL_FAST}인 경우는 빠른 압축기를, 1부터
+	 * 				{@link Lz4Compressions#MAX_LEVEL} 사이의 값인 경우는 해당 수준의
+	 * 				고압축(HC) 압축기를 사용한다.
+	 * @return	설정 객체.
+	 */
+	public Lz4CompressOptions level(int level) {
+		Utilities.checkArgument(level >= Lz4Compressions.LEVEL_FAST && level <= Lz4Compressions.MAX_LEVEL,
+								"invalid compression level: " + level);
+
+		m_level = level;
+		return this;
+	}
+
+	public boolean writeIndex() {
+		return m_writeIndex;
+	}
+
+	/**
+	 * 마지막 블럭 뒤에 블럭 색인 트레일러({@link Lz4BlockIndex})를 기록할지 여부를 설정한다.
+	 *
+	 * @param flag	색인 트레일러 기록 여부.
+	 * @return	설정 객체.
+	 */
+	public Lz4CompressOptions writeIndex(boolean flag) {
+		m_writeIndex = flag;
+		return this;
+	}
+
+	public boolean skipIncompressible() {
+		return m_skipIncompressible;
+	}
+
+	/**
+	 * 압축되지 않는 데이터에 대한 압축 생략 여부를 설정한다.
+	 * <p>
+	 * 설정된 경우, 스트림 앞 부분의 블럭들이 모두 압축 효과가 없으면 이후 블럭들은
+	 * 압축을 시도하지 않고 원본 그대로 저장한다. 데이터 성격이 바뀌는 경우에 대비하여
+	 * 일정 간격으로 압축을 다시 시도한다.
+	 *
+	 * @param flag	압축 생략 여부.
+	 * @return	설정 객체.
+	 */
+	public Lz4CompressOptions skipIncompressible(boolean flag) {
+		m_skipIncompressible = flag;
+		return this;
+	}
+
+	public boolean checksum() {
+		return m_checksum;
+	}
+
+	/**
+	 * 각 블럭에 xxHash32 체크섬을 기록할지 여부를 설정한다.
+	 * <p>
+	 * 체크섬이 기록된 블럭은 압축 해제시 검사되며, {@link Lz4Verifier}를 이용하면
+	 * 압축을 해제하지 않고 압축 파일 전체의 무결성을 병렬로 검사할 수 있다.
+	 *
+	 * @param flag	체크섬 기록 여부.
+	 * @return	설정 객체.
+	 */
+	public Lz4CompressOptions checksum(boolean flag) {
+		m_checksum = flag;
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("block_size=%d, level=%d, index=%s, skip_incompressible=%s, checksum=%s",
+								m_blockSize, m_level, m_writeIndex, m_skipIncompressible, m_checksum);
+	}
+}
@@ -0,0 +1,142 @@
+package utils.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+
+import utils.Utilities;
+
+/**
+ * 원본 데이터 채널에서 읽은 데이터를 {@link Lz4Compressions} 블럭 형식으로 압축하여 제공하는 채널.
+ * <p>
+ * 원본 채널이 non-blocking 모드여서 당장 읽을 데이터가 없는 경우, 이 채널의
+ * {@link #read(ByteBuffer)}도 대기하지 않고 0을 반환한다. 원본 채널에서 읽은 데이터는
+ * 블럭 버퍼에 누적되며, 블럭 버퍼가 가득 차거나 원본 채널이 종료된 경우에 하나의 블럭으로
+ * 압축된다. 압축 결과는 {@link Lz4Compressions#decompress(java.io.InputStream)}로 복원할 수 있다.
+ * <p>
+ * 원본 채널은 이 채널이 close될 때 함께 close되지 않는다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+class Lz4CompressingChannel implements ReadableByteChannel, Lz4Metrics.Source {
+	private final ReadableByteChannel m_src;
+	private final Lz4BlockEncoder m_encoder;
+	private final Lz4Metrics m_metrics = Lz4Metrics.newStreamMetrics();
+
+	private byte[] m_raw;
+	private ByteBuffer m_rawBuffer;
+	private byte[] m_encoded;
+	private ByteBuffer m_pending;		// 아직 출력되지 않은 압축 데이터
+	private boolean m_srcEOF = false;
+	private boolean m_finished = false;
+	private boolean m_closed = false;
+
+	Lz4CompressingChannel(ReadableByteChannel src, Lz4CompressOptions opts) {
+		Utilities.checkNotNullArgument(src, "Source ReadableByteChannel");
+		Utilities.checkNotNullArgument(opts, "Lz4CompressOptions");
+
+		m_src = src;
+		m_encoder = new Lz4BlockEncoder(opts, m_metrics);
+		m_raw = Lz4BufferPool.shared().borrow(m_encoder.getBlockSize());
+		m_rawBuffer = ByteBuffer.wrap(m_raw);
+		m_encoded = Lz4BufferPool.shared().borrow(m_encoder.getMaxEncodedLength());
+		m_pending = ByteBuffer.wrap(m_encoded, 0, 0);
+	}
+
+	@Override
+	public int read(ByteBuffer dst) throws IOException {
+		if ( m_closed ) {
+			throw new ClosedChannelException();
+		}
+
+		int total = 0;
+		while ( true ) {
+			if ( m_pending.hasRemaining() ) {
+				int nbytes = Math.min(m_pending.remaining(), dst.remaining());
+				ByteBuffer slice = m_pending.duplicate();
+				slice.limit(slice.position() + nbytes);
+				dst.put(slice);
+				m_pending.position(m_pending.position() + nbytes);
+				total += nbytes;
+
+				if ( !dst.hasRemaining() ) {
+					return total;
+				}
+			}
+			if ( m_finished ) {
+				return (total > 0) ? total : -1;
+			}
+
+			if ( !fillRawBuffer() ) {
+				// 원본 채널에 당장 읽을 데이터가 없음
+				return total;
+			}
+		}
+	}
+
+	@Override
+	public boolean isOpen() {
+		return !m_closed;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if ( !m_closed ) {
+			m_closed = true;
+
+			Lz4BufferPool.shared().release(m_raw);
+			Lz4BufferPool.shared().release(m_encoded);
+			m_raw = null;
+			m_encoded = null;
+
+			m_metrics.notifyClosed(getClass().getSimpleName());
+		}
+	}
+
+	@Override
+	public Lz4Metrics getMetrics() {
+		return m_metrics;
+	}
+
+	@Override
+	public String toString() {
+		Lz4Metrics.Snapshot snapshot = m_metrics.snapshot();
+		return String.format("%s: blocks=%d, %d -> %d", getClass().getSimpleName(),
+								snapshot.getCompressBlocks(), snapshot.getCompressInBytes(),
+								snapshot.getCompressOutBytes());
+	}
+
+	// 원본 채널에서 데이터를 읽어 출력할 압축 데이터를 준비한다.
+	// 원본 채널에 당장 읽을 데이터가 없어 출력할 데이터를 준비하지 못한 경우는 false를 반환한다.
+	private boolean fillRawBuffer() throws IOException {
+		while ( !m_srcEOF && m_rawBuffer.hasRemaining() ) {
+			int nread = m_src.read(m_rawBuffer);
+			if ( nread < 0 ) {
+				m_srcEOF = true;
+			}
+			else if ( nread == 0 ) {
+				break;
+			}
+		}
+
+		int nbytes = m_rawBuffer.position();
+		if ( !m_rawBuffer.hasRemaining() || (m_srcEOF && nbytes > 0) ) {
+			int length = m_encoder.encode(m_raw, 0, nbytes, m_encoded, 0);
+			m_pending = ByteBuffer.wrap(m_encoded, 0, length);
+			m_rawBuffer.clear();
+
+			return true;
+		}
+		else if ( m_srcEOF ) {
+			ByteBuffer trailer = m_encoder.getIndexTrailer();
+			m_pending = (trailer != null) ? trailer : m_pending;
+			m_finished = true;
+
+			return true;
+		}
+		else {
+			return false;
+		}
+	}
+}
@@ -3,10 +3,22 @@ package utils.io;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
+import java.io.File;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,9 +26,11 @@ import org.slf4j.LoggerFactory;
 import net.jpountz.lz4.LZ4BlockInputStream;
 import net.jpountz.lz4.LZ4BlockOutputStream;
 import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
 import net.jpountz.lz4.LZ4Factory;
 import net.jpountz.lz4.LZ4FastDecompressor;
-import utils.UnitUtils;
+import net.jpountz.xxhash.XXHash32;
+import net.jpountz.xxhash.XXHashFactory;
 import utils.Utilities;
 import utils.func.Lazy;
 import utils.io.IOUtils;
@@ -28,10 +42,47 @@ import utils.io.IOUtils;
 public class Lz4Compressions {
 	private static final Logger s_logger = LoggerFactory.getLogger(Lz4Compressions.class);
 	
-	private static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
-	private static final int HEADER_SIZE = 4 + 4;
-	private static final Lazy<LZ4Factory> s_fact = Lazy.of(LZ4Factory::fastestInstance);
+	static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+	static final int HEADER_SIZE = 4 + 4;
+	
+	/** 빠른 압축기(fast compressor)를 사용하는 압축 수준. */
+	public static final int LEVEL_FAST = 0;
+	/** 고압축(HC) 압축기의 기본 압축 수준. */
+	public static final int DEFAULT_HC_LEVEL = 9;
+	/** 고압축(HC) 압축기의 최대 압축 수준. */
+	public static final int MAX_LEVEL = 17;
+	/**
+	 * 압축 블럭의 최대 크기.
+	 * 블럭 헤더의 길이 필드(25bit)에 압축 결과와 체크섬까지 담을 수 있도록 제한되며,
+	 * 모든 압축 함수는 이보다 큰 블럭 크기를 거부한다.
+	 */
+	public static final int MAX_BLOCK_SIZE = 16 * 1024 * 1024;
+	
+	// 블럭 헤더의 각 int 값은 하위 25bit에 길이를 담고, 그 위의 bit들은 블럭 속성을 담는다.
+	// 원본 길이 값의 bit 25-29에는 블럭의 압축 수준을 기록하고,
+	// 압축 길이 값의 bit 25는 블럭이 압축되지 않고 원본 그대로 저장되었음을 표시하고,
+	// bit 26은 블럭 데이터 뒤에 4byte의 xxHash32 체크섬이 붙어 있음을 표시한다.
+	// 체크섬은 블럭 헤더 뒤에 기록된 데이터(압축 또는 원본)에 대해 계산되며, 압축 길이 값에 포함된다.
+	// 속성 bit들이 모두 0인 블럭(빠른 압축기로 압축된 체크섬 없는 블럭)은 속성 bit 도입 이전의
+	// 형식과 동일하다. 그 외의 블럭은 이전 버전에서 읽을 수 없으며, 반대로 이전 버전에서 32MB 이상의
+	// 블럭 크기로 압축된 데이터는 길이가 속성 bit와 구분되지 않기 때문에 읽을 수 없다.
+	private static final int LENGTH_MASK = (1 << 25) - 1;
+	private static final int LEVEL_SHIFT = 25;
+	private static final int LEVEL_MASK = 0x1F;
+	static final int STORED_FLAG = 1 << 25;
+	static final int CHECKSUM_FLAG = 1 << 26;
+	static final int CHECKSUM_SIZE = 4;
+	private static final int CHECKSUM_SEED = 0;
+	private static final int CHANNEL_BUFFER_SIZE = 1024 * 1024;
+	private static final long MAX_MAP_SIZE = 1L << 30;
+	static final int MAX_VARINT_SIZE = 5;
+	// LZ4 블럭의 최대 압축률. 압축 데이터 1 바이트는 최대 255 바이트 미만의 원본 데이터를 표현한다.
+	private static final int MAX_COMPRESSION_RATIO = 255;
+	private static final int MAX_SCRATCH_SIZE = 1024 * 1024;
+	private static final ThreadLocal<byte[]> s_scratch = new ThreadLocal<>();
+	static final Lazy<LZ4Factory> s_fact = Lazy.of(LZ4Factory::fastestInstance);
 	private static final Lazy<LZ4Compressor> s_compressor = Lazy.of(() -> s_fact.get().fastCompressor());
+	private static final Lazy<XXHash32> s_xxhash = Lazy.of(() -> XXHashFactory.fastestInstance().hash32());
 	
 	private Lz4Compressions() {
 		throw new AssertionError("Should not be called: class=" + Lz4Compressions.class.getName());
@@ -42,24 +93,691 @@ public class Lz4Compressions {
 	}
 	
 	public static byte[] compress(byte[] bytes) throws IOException {
+		long started = System.nanoTime();
 		ByteArrayOutputStream baos = new ByteArrayOutputStream(bytes.length);
 		try ( LZ4BlockOutputStream lz4os = new LZ4BlockOutputStream(baos, bytes.length) ) {
 			lz4os.write(bytes);
 		}
 		baos.close();
 		
-		return baos.toByteArray();
+		byte[] compressed = baos.toByteArray();
+		Lz4Metrics.global().recordCompress(bytes.length, compressed.length, System.nanoTime() - started);
+		
+		return compressed;
 	}
 	
 	public static byte[] decompress(byte[] bytes) throws IOException {
+		long started = System.nanoTime();
 		try ( ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
 				LZ4BlockInputStream lz4is = new LZ4BlockInputStream(bais) ) {
-			return IOUtils.toBytes(lz4is);
+			byte[] decompressed = IOUtils.toBytes(lz4is);
+			Lz4Metrics.global().recordDecompress(bytes.length, decompressed.length,
+												System.nanoTime() - started);
+			return decompressed;
+		}
+	}
+	
+	/**
+	 * 주어진 크기의 데이터를 {@link #compressBlock(byte[], int, int, byte[], int)}로 압축할 때
+	 * 필요한 최대 버퍼 크기를 반환한다.
+	 * 
+	 * @param srcLength	압축 대상 데이터 크기.
+	 * @return	최대 압축 결과 크기 (길이 prefix 포함).
+	 */
+	public static int maxCompressedBlockLength(int srcLength) {
+		return MAX_VARINT_SIZE + maxCompressedLength(srcLength);
+	}
+	
+	public static byte[] compressBlock(byte[] bytes) {
+		return compressBlock(bytes, 0, bytes.length);
+	}
+	
+	/**
+	 * 주어진 데이터를 하나의 LZ4 블럭으로 압축한다.
+	 * <p>
+	 * {@link #compress(byte[])}와 달리 스트림 객체나 checksum을 사용하지 않으며,
+	 * 압축 결과는 가변 길이로 인코딩된 원본 길이 뒤에 압축된 데이터가 붙은 형태이다.
+	 * 압축은 쓰레드별로 유지되는 작업 버퍼에서 수행되고, 결과 배열만 정확한 크기로 한번 할당된다.
+	 * 
+	 * @param bytes	압축 대상 데이터를 담은 배열.
+	 * @param offset	압축 대상 데이터 시작 위치.
+	 * @param length	압축 대상 데이터 크기.
+	 * @return	압축된 데이터.
+	 * @see #decompressBlock(byte[])
+	 */
+	public static byte[] compressBlock(byte[] bytes, int offset, int length) {
+		int maxLength = maxCompressedBlockLength(length);
+		byte[] work = (maxLength <= MAX_SCRATCH_SIZE) ? s_scratch.get() : null;
+		if ( work == null || work.length < maxLength ) {
+			work = new byte[maxLength];
+			if ( maxLength <= MAX_SCRATCH_SIZE ) {
+				s_scratch.set(work);
+			}
+		}
+		
+		int nbytes = compressBlock(bytes, offset, length, work, 0);
+		return Arrays.copyOf(work, nbytes);
+	}
+	
+	/**
+	 * 주어진 데이터를 하나의 LZ4 블럭으로 압축하여 주어진 배열에 기록한다.
+	 * <p>
+	 * 대상 배열에는 최소한 {@link #maxCompressedBlockLength(int)} 만큼의 공간이 있어야 한다.
+	 * 
+	 * @param src	압축 대상 데이터를 담은 배열.
+	 * @param srcOff	압축 대상 데이터 시작 위치.
+	 * @param srcLen	압축 대상 데이터 크기.
+	 * @param dest	압축 결과를 기록할 배열.
+	 * @param destOff	압축 결과 기록 시작 위치.
+	 * @return	기록된 바이트 수.
+	 * @throws IndexOutOfBoundsException	대상 배열의 남은 공간이 부족한 경우.
+	 */
+	public static int compressBlock(byte[] src, int srcOff, int srcLen, byte[] dest, int destOff) {
+		Utilities.checkArgument(srcLen >= 0, "invalid length: " + srcLen);
+		int required = maxCompressedBlockLength(srcLen);
+		if ( dest.length - destOff < required ) {
+			throw new IndexOutOfBoundsException("insufficient target space: required=" + required
+												+ ", available=" + (dest.length - destOff));
+		}
+		
+		long started = System.nanoTime();
+		int prefixLen = writeVarInt(srcLen, dest, destOff);
+		int ncompresseds = s_compressor.get().compress(src, srcOff, srcLen, dest, destOff + prefixLen,
+														dest.length - destOff - prefixLen);
+		Lz4Metrics.global().recordCompress(srcLen, prefixLen + ncompresseds, System.nanoTime() - started);
+		
+		return prefixLen + ncompresseds;
+	}
+	
+	/**
+	 * {@link #compressBlock(byte[], int, int)}로 압축된 데이터의 원래 길이를 반환한다.
+	 * 
+	 * @param bytes	압축된 데이터를 담은 배열.
+	 * @param offset	압축된 데이터 시작 위치.
+	 * @return	압축 해제된 데이터 길이.
+	 */
+	public static int decompressedBlockLength(byte[] bytes, int offset) {
+		return (int)readVarInt(bytes, offset);
+	}
+	
+	public static byte[] decompressBlock(byte[] bytes) {
+		return decompressBlock(bytes, 0);
+	}
+	
+	/**
+	 * {@link #compressBlock(byte[], int, int)}로 압축된 데이터를 압축 해제한다.
+	 * <p>
+	 * 압축 해제 결과 배열만 정확한 크기로 한번 할당된다.
+	 * 
+	 * @param bytes	압축된 데이터를 담은 배열.
+	 * @param offset	압축된 데이터 시작 위치.
+	 * @return	압축 해제된 데이터.
+	 * @throws LZ4Exception	길이 prefix 또는 압축 데이터가 손상된 경우.
+	 */
+	public static byte[] decompressBlock(byte[] bytes, int offset) {
+		long lenInfo = readVarInt(bytes, offset);
+		int len = (int)lenInfo;
+		int prefixLen = (int)(lenInfo >>> 32);
+		checkBlockLength(len, bytes.length - offset - prefixLen, offset);
+		
+		byte[] decompressed = new byte[len];
+		long started = System.nanoTime();
+		int ncompresseds = s_fact.get().fastDecompressor().decompress(bytes, offset + prefixLen,
+																		decompressed, 0, len);
+		Lz4Metrics.global().recordDecompress(prefixLen + ncompresseds, len, System.nanoTime() - started);
+		
+		return decompressed;
+	}
+	
+	/**
+	 * {@link #compressBlock(byte[], int, int)}로 압축된 데이터를 압축 해제하여 주어진 배열에 기록한다.
+	 * 
+	 * @param src	압축된 데이터를 담은 배열.
+	 * @param srcOff	압축된 데이터 시작 위치.
+	 * @param dest	압축 해제 결과를 기록할 배열.
+	 * @param destOff	압축 해제 결과 기록 시작 위치.
+	 * @return	기록된 바이트 수.
+	 * @throws LZ4Exception	길이 prefix 또는 압축 데이터가 손상된 경우.
+	 * @throws IndexOutOfBoundsException	대상 배열의 남은 공간이 부족한 경우.
+	 */
+	public static int decompressBlock(byte[] src, int srcOff, byte[] dest, int destOff) {
+		long lenInfo = readVarInt(src, srcOff);
+		int len = (int)lenInfo;
+		int prefixLen = (int)(lenInfo >>> 32);
+		checkBlockLength(len, src.length - srcOff - prefixLen, srcOff);
+		if ( dest.length - destOff < len ) {
+			throw new IndexOutOfBoundsException("insufficient target space: required=" + len
+												+ ", available=" + (dest.length - destOff));
+		}
+		
+		long started = System.nanoTime();
+		int ncompresseds = s_fact.get().fastDecompressor().decompress(src, srcOff + prefixLen,
+																		dest, destOff, len);
+		Lz4Metrics.global().recordDecompress(prefixLen + ncompresseds, len, System.nanoTime() - started);
+		
+		return len;
+	}
+	
+	/**
+	 * 주어진 공유 사전을 이용하여 작은 레코드를 압축한다.
+	 * <p>
+	 * 압축 결과에는 사전 식별자가 기록되며, {@link #decompressBlock(byte[], Lz4Dictionary)}로
+	 * 압축을 해제할 수 있다.
+	 * 
+	 * @param bytes	압축 대상 레코드.
+	 * @param dict	공유 사전.
+	 * @return	압축된 레코드.
+	 * @see Lz4Dictionary#train(Iterable)
+	 */
+	public static byte[] compressBlock(byte[] bytes, Lz4Dictionary dict) {
+		Utilities.checkNotNullArgument(dict, "Lz4Dictionary");
+		
+		return dict.compress(bytes);
+	}
+	
+	public static byte[] decompressBlock(byte[] bytes, Lz4Dictionary dict) {
+		Utilities.checkNotNullArgument(dict, "Lz4Dictionary");
+		
+		return dict.decompress(bytes);
+	}
+	
+	// 길이 prefix에서 읽은 원본 길이가 남은 압축 데이터 크기로 표현될 수 있는 범위인지 검사한다.
+	static void checkBlockLength(int len, int compressedLen, int offset) {
+		if ( len < 0 || len > (long)compressedLen * MAX_COMPRESSION_RATIO ) {
+			throw new LZ4Exception("corrupted length prefix: length=" + len + ", compressed="
+									+ compressedLen + ", offset=" + offset);
+		}
+	}
+	
+	static int writeVarInt(int value, byte[] buf, int offset) {
+		int idx = offset;
+		while ( (value & ~0x7F) != 0 ) {
+			buf[idx++] = (byte)((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buf[idx++] = (byte)value;
+		
+		return idx - offset;
+	}
+	
+	// 하위 32bit에는 값을, 상위 32bit에는 인코딩된 바이트 수를 담아 반환한다.
+	static long readVarInt(byte[] buf, int offset) {
+		return readVarInt(buf, offset, buf.length);
+	}
+	
+	// buf[offset, end) 범위 안에서만 varint를 읽는다.
+	static long readVarInt(byte[] buf, int offset, int end) {
+		int value = 0;
+		for ( int i =0; i < MAX_VARINT_SIZE; ++i ) {
+			if ( offset + i >= end ) {
+				throw new LZ4Exception("truncated length prefix: offset=" + offset);
+			}
+			byte b = buf[offset + i];
+			value |= (b & 0x7F) << (7 * i);
+			if ( (b & 0x80) == 0 ) {
+				return ((long)(i+1) << 32) | (value & 0xFFFFFFFFL);
+			}
+		}
+		
+		throw new LZ4Exception("invalid length prefix: offset=" + offset);
+	}
+	
+	/**
+	 * 주어진 크기의 데이터를 {@link #compress(ByteBuffer, ByteBuffer, int)}로 압축할 때
+	 * 필요한 최대 버퍼 크기를 반환한다.
+	 * 
+	 * @param srcLength	압축 대상 데이터 크기.
+	 * @param blockSize	압축 블럭 크기.
+	 * @return	최대 압축 결과 크기.
+	 */
+	public static int maxCompressedLength(int srcLength, int blockSize) {
+		Utilities.checkArgument(blockSize > 0 && blockSize <= MAX_BLOCK_SIZE,
+								"invalid block-size: " + blockSize);
+		
+		int nblocks = (srcLength + blockSize - 1) / blockSize;
+		int lastBlockSize = srcLength - (nblocks-1) * blockSize;
+		return (nblocks > 0)
+				? (nblocks-1) * (HEADER_SIZE + maxCompressedLength(blockSize))
+					+ HEADER_SIZE + maxCompressedLength(lastBlockSize)
+				: 0;
+	}
+	
+	public static ByteBuffer compress(ByteBuffer src) {
+		return compress(src, DEFAULT_BLOCK_SIZE);
+	}
+	
+	/**
+	 * 주어진 버퍼의 데이터를 압축하여 새로 할당된 버퍼에 담아 반환한다.
+	 * <p>
+	 * 원본 버퍼가 direct 버퍼인 경우는 결과 버퍼도 direct 버퍼로 할당된다.
+	 * 원본 버퍼의 position은 압축된 데이터 크기만큼 증가된다.
+	 * 
+	 * @param src	압축 대상 버퍼.
+	 * @param blockSize	압축 블럭 크기.
+	 * @return	압축된 데이터가 담긴 버퍼 (flip된 상태).
+	 */
+	public static ByteBuffer compress(ByteBuffer src, int blockSize) {
+		int maxLength = maxCompressedLength(src.remaining(), blockSize);
+		ByteBuffer dest = src.isDirect() ? ByteBuffer.allocateDirect(maxLength)
+										: ByteBuffer.allocate(maxLength);
+		compress(src, dest, blockSize);
+		return dest.flip();
+	}
+	
+	public static int compress(ByteBuffer src, ByteBuffer dest) {
+		return compress(src, dest, DEFAULT_BLOCK_SIZE);
+	}
+	
+	/**
+	 * 주어진 원본 버퍼의 데이터를 {@link #compress(InputStream, int)}와 동일한 블럭 형식으로
+	 * 압축하여 대상 버퍼에 기록한다.
+	 * <p>
+	 * 두 버퍼 모두 heap 또는 direct 버퍼일 수 있으며, 중간 복사 없이 직접 압축된다.
+	 * 원본 버퍼와 대상 버퍼의 position은 각각 읽은 크기와 기록된 크기만큼 증가된다.
+	 * 
+	 * @param src	압축 대상 버퍼.
+	 * @param dest	압축 결과를 기록할 버퍼.
+	 * @param blockSize	압축 블럭 크기.
+	 * @return	대상 버퍼에 기록된 바이트 수.
+	 * @throws BufferOverflowException	대상 버퍼의 남은 공간이 부족한 경우.
+	 */
+	public static int compress(ByteBuffer src, ByteBuffer dest, int blockSize) {
+		Utilities.checkNotNullArgument(src, "source ByteBuffer");
+		Utilities.checkNotNullArgument(dest, "target ByteBuffer");
+		Utilities.checkArgument(blockSize > 0 && blockSize <= MAX_BLOCK_SIZE,
+								"invalid block-size: " + blockSize);
+		
+		LZ4Compressor compressor = s_compressor.get();
+		
+		int srcOff = src.position();
+		int srcEnd = src.limit();
+		int destStart = dest.position();
+		int destOff = destStart;
+		while ( srcOff < srcEnd ) {
+			int len = Math.min(blockSize, srcEnd - srcOff);
+			if ( dest.limit() - destOff < HEADER_SIZE ) {
+				throw new BufferOverflowException();
+			}
+			
+			long started = System.nanoTime();
+			int ncompresseds;
+			try {
+				ncompresseds = compressor.compress(src, srcOff, len, dest, destOff + HEADER_SIZE,
+													dest.limit() - destOff - HEADER_SIZE);
+			}
+			catch ( LZ4Exception e ) {
+				// 압축 결과를 담을 공간은 부족하지만 원본 그대로는 저장할 수 있는 경우를 위해
+				ncompresseds = Integer.MAX_VALUE;
+			}
+			
+			int payloadWord = ncompresseds;
+			if ( ncompresseds >= len ) {
+				if ( dest.limit() - destOff - HEADER_SIZE < len ) {
+					throw new BufferOverflowException();
+				}
+				
+				ByteBuffer raw = src.duplicate();
+				raw.limit(srcOff + len).position(srcOff);
+				ByteBuffer target = dest.duplicate();
+				target.position(destOff + HEADER_SIZE);
+				target.put(raw);
+				
+				ncompresseds = len;
+				payloadWord = len | STORED_FLAG;
+			}
+			putIntBE(dest, destOff, encodeRawLength(len, LEVEL_FAST));
+			putIntBE(dest, destOff+4, payloadWord);
+			Lz4Metrics.global().recordCompress(len, HEADER_SIZE + ncompresseds, System.nanoTime() - started);
+			
+			srcOff += len;
+			destOff += HEADER_SIZE + ncompresseds;
+		}
+		src.position(srcOff);
+		dest.position(destOff);
+		
+		return destOff - destStart;
+	}
+	
+	/**
+	 * {@link #compress(ByteBuffer, ByteBuffer, int)}로 압축된 데이터의 원래 크기를 반환한다.
+	 * <p>
+	 * 블럭 헤더만 읽으며, 주어진 버퍼의 position은 변경되지 않는다.
+	 * 
+	 * @param src	압축된 데이터가 담긴 버퍼.
+	 * @return	압축 해제된 데이터 크기.
+	 */
+	public static long decompressedLength(ByteBuffer src) {
+		long total = 0;
+		int off = src.position();
+		while ( off < src.limit() ) {
+			int len = getIntBE(src, off);
+			if ( len == Lz4BlockIndex.INDEX_MARK ) {
+				break;
+			}
+			total += getBlockLength(len);
+			off += HEADER_SIZE + getBlockLength(getIntBE(src, off+4));
+		}
+		
+		return total;
+	}
+	
+	/**
+	 * 주어진 버퍼의 데이터를 압축 해제하여 새로 할당된 버퍼에 담아 반환한다.
+	 * <p>
+	 * 원본 버퍼가 direct 버퍼인 경우는 결과 버퍼도 direct 버퍼로 할당된다.
+	 * 
+	 * @param src	압축된 데이터가 담긴 버퍼.
+	 * @return	압축 해제된 데이터가 담긴 버퍼 (flip된 상태).
+	 */
+	public static ByteBuffer decompress(ByteBuffer src) {
+		long length = decompressedLength(src);
+		Utilities.checkArgument(length <= Integer.MAX_VALUE, "too large decompressed size: " + length);
+		
+		ByteBuffer dest = src.isDirect() ? ByteBuffer.allocateDirect((int)length)
+										: ByteBuffer.allocate((int)length);
+		decompress(src, dest);
+		return dest.flip();
+	}
+	
+	/**
+	 * 주어진 원본 버퍼에 담긴 압축 데이터를 압축 해제하여 대상 버퍼에 기록한다.
+	 * <p>
+	 * 원본 버퍼와 대상 버퍼의 position은 각각 읽은 크기와 기록된 크기만큼 증가된다.
+	 * 
+	 * @param src	압축된 데이터가 담긴 버퍼.
+	 * @param dest	압축 해제된 데이터를 기록할 버퍼.
+	 * @return	대상 버퍼에 기록된 바이트 수.
+	 * @throws BufferOverflowException	대상 버퍼의 남은 공간이 부족한 경우.
+	 */
+	public static int decompress(ByteBuffer src, ByteBuffer dest) {
+		Utilities.checkNotNullArgument(src, "source ByteBuffer");
+		Utilities.checkNotNullArgument(dest, "target ByteBuffer");
+		
+		LZ4FastDecompressor decompressor = s_fact.get().fastDecompressor();
+		
+		int srcOff = src.position();
+		int srcEnd = src.limit();
+		int destStart = dest.position();
+		int destOff = destStart;
+		while ( srcOff < srcEnd ) {
+			int len = getIntBE(src, srcOff);
+			int compressedLen = getIntBE(src, srcOff+4);
+			if ( len == Lz4BlockIndex.INDEX_MARK ) {
+				// 색인 트레일러는 건너뛴다.
+				srcOff += HEADER_SIZE + compressedLen;
+				break;
+			}
+			len = getBlockLength(len);
+			if ( dest.limit() - destOff < len ) {
+				throw new BufferOverflowException();
+			}
+			
+			long started = System.nanoTime();
+			verifyChecksum(compressedLen, src, srcOff + HEADER_SIZE);
+			if ( isStoredBlock(compressedLen) ) {
+				ByteBuffer raw = src.duplicate();
+				raw.limit(srcOff + HEADER_SIZE + len).position(srcOff + HEADER_SIZE);
+				ByteBuffer target = dest.duplicate();
+				target.position(destOff);
+				target.put(raw);
+			}
+			else {
+				decompressor.decompress(src, srcOff + HEADER_SIZE, dest, destOff, len);
+			}
+			Lz4Metrics.global().recordDecompress(HEADER_SIZE + getBlockLength(compressedLen), len,
+												System.nanoTime() - started);
+			srcOff += HEADER_SIZE + getBlockLength(compressedLen);
+			destOff += len;
+		}
+		src.position(srcOff);
+		dest.position(destOff);
+		
+		return destOff - destStart;
+	}
+	
+	public static long compress(File srcFile, File destFile) throws IOException {
+		return compress(srcFile, destFile, DEFAULT_BLOCK_SIZE);
+	}
+	
+	/**
+	 * 주어진 파일을 압축하여 대상 파일에 기록한다.
+	 * 
+	 * @param srcFile	압축 대상 파일.
+	 * @param destFile	압축 결과 파일.
+	 * @param blockSize	압축 블럭 크기.
+	 * @return	압축 결과 파일의 크기.
+	 * @see #compress(FileChannel, WritableByteChannel, int, boolean)
+	 */
+	public static long compress(File srcFile, File destFile, int blockSize) throws IOException {
+		return compress(srcFile, destFile, blockSize, false);
+	}
+	
+	/**
+	 * 주어진 파일을 압축하여 대상 파일에 기록한다.
+	 * 
+	 * @param srcFile	압축 대상 파일.
+	 * @param destFile	압축 결과 파일.
+	 * @param blockSize	압축 블럭 크기.
+	 * @param writeIndex	블럭 색인 트레일러 기록 여부.
+	 * @return	압축 결과 파일의 크기.
+	 * @see #compress(FileChannel, WritableByteChannel, int, boolean)
+	 * @see Lz4RandomAccessReader
+	 */
+	public static long compress(File srcFile, File destFile, int blockSize, boolean writeIndex)
+		throws IOException {
+		try ( FileChannel src = FileChannel.open(srcFile.toPath(), StandardOpenOption.READ);
+				FileChannel dest = FileChannel.open(destFile.toPath(), StandardOpenOption.WRITE,
+													StandardOpenOption.CREATE,
+													StandardOpenOption.TRUNCATE_EXISTING) ) {
+			return compress(src, dest, blockSize, writeIndex);
 		}
 	}
 	
+	/**
+	 * 주어진 파일 채널의 현재 위치부터 끝까지의 데이터를 압축하여 대상 채널에 기록한다.
+	 * <p>
+	 * 원본 파일은 메모리에 매핑({@link MappedByteBuffer})되어 블럭 단위로 직접 압축되며,
+	 * 압축 결과는 {@link #compress(InputStream, int)}와 동일한 블럭 형식으로 기록된다.
+	 * 작업이 끝나면 원본 채널의 위치는 파일의 끝으로 설정된다.
+	 * 
+	 * @param src	압축 대상 파일 채널.
+	 * @param dest	압축 결과를 기록할 채널.
+	 * @param blockSize	압축 블럭 크기.
+	 * @param writeIndex	마지막 블럭 뒤에 블럭 색인 트레일러({@link Lz4BlockIndex})를 기록할지 여부.
+	 * @return	대상 채널에 기록된 바이트 수.
+	 */
+	public static long compress(FileChannel src, WritableByteChannel dest, int blockSize,
+								boolean writeIndex) throws IOException {
+		Utilities.checkNotNullArgument(src, "source FileChannel");
+		Utilities.checkNotNullArgument(dest, "target WritableByteChannel");
+		Utilities.checkArgument(blockSize > 0 && blockSize <= MAX_BLOCK_SIZE,
+								"invalid block-size: " + blockSize);
+		
+		int maxBlockLength = HEADER_SIZE + maxCompressedLength(blockSize);
+		ByteBuffer out = ByteBuffer.allocateDirect(Math.max(maxBlockLength, CHANNEL_BUFFER_SIZE));
+		long chunkSize = Math.max(MAX_MAP_SIZE / blockSize, 1) * blockSize;
+		Lz4BlockIndex.Builder index = writeIndex ? new Lz4BlockIndex.Builder(16) : null;
+		
+		long written = 0;
+		long pos = src.position();
+		long size = src.size();
+		while ( pos < size ) {
+			long mapSize = Math.min(chunkSize, size - pos);
+			MappedByteBuffer mapped = src.map(MapMode.READ_ONLY, pos, mapSize);
+			while ( mapped.position() < mapped.capacity() ) {
+				if ( out.remaining() < maxBlockLength ) {
+					written += flush(out, dest);
+				}
+				mapped.limit(Math.min(mapped.position() + blockSize, mapped.capacity()));
+				int len = mapped.remaining();
+				int headerOff = out.position();
+				compress(mapped, out, blockSize);
+				if ( index != null ) {
+					index.add(len, getIntBE(out, headerOff+4));
+				}
+			}
+			pos += mapSize;
+		}
+		written += flush(out, dest);
+		if ( index != null ) {
+			ByteBuffer trailer = index.toTrailer();
+			written += trailer.remaining();
+			while ( trailer.hasRemaining() ) {
+				dest.write(trailer);
+			}
+		}
+		src.position(size);
+		
+		return written;
+	}
+	
+	/**
+	 * 주어진 압축 파일을 압축 해제하여 대상 파일에 기록한다.
+	 * 
+	 * @param srcFile	압축된 파일.
+	 * @param destFile	압축 해제 결과 파일.
+	 * @return	압축 해제된 데이터 크기.
+	 * @see #decompress(FileChannel, WritableByteChannel)
+	 */
+	public static long decompress(File srcFile, File destFile) throws IOException {
+		try ( FileChannel src = FileChannel.open(srcFile.toPath(), StandardOpenOption.READ);
+				FileChannel dest = FileChannel.open(destFile.toPath(), StandardOpenOption.WRITE,
+													StandardOpenOption.CREATE,
+													StandardOpenOption.TRUNCATE_EXISTING) ) {
+			return decompress(src, dest);
+		}
+	}
+	
+	/**
+	 * 주어진 파일 채널의 현재 위치부터 끝까지의 압축 데이터를 압축 해제하여 대상 채널에 기록한다.
+	 * <p>
+	 * 원본 파일은 메모리에 매핑되어 블럭 단위로 직접 압축 해제된다.
+	 * 작업이 끝나면 원본 채널의 위치는 파일의 끝으로 설정된다.
+	 * 
+	 * @param src	압축된 데이터를 담은 파일 채널.
+	 * @param dest	압축 해제된 데이터를 기록할 채널.
+	 * @return	대상 채널에 기록된 바이트 수.
+	 */
+	public static long decompress(FileChannel src, WritableByteChannel dest) throws IOException {
+		Utilities.checkNotNullArgument(src, "source FileChannel");
+		Utilities.checkNotNullArgument(dest, "target WritableByteChannel");
+		
+		LZ4FastDecompressor decompressor = s_fact.get().fastDecompressor();
+		ByteBuffer out = ByteBuffer.allocateDirect(CHANNEL_BUFFER_SIZE);
+		
+		long written = 0;
+		long pos = src.position();
+		long size = src.size();
+		while ( pos < size ) {
+			// 블럭이 매핑 영역의 경계에 걸치지 않도록 매 매핑 영역은 블럭의 시작 위치부터 잡는다.
+			long mapSize = Math.min(MAX_MAP_SIZE, size - pos);
+			MappedByteBuffer mapped = src.map(MapMode.READ_ONLY, pos, mapSize);
+			
+			int off = 0;
+			while ( off + HEADER_SIZE <= mapSize ) {
+				int len = getIntBE(mapped, off);
+				int compressedLen = getIntBE(mapped, off+4);
+				if ( len == Lz4BlockIndex.INDEX_MARK ) {
+					written += flush(out, dest);
+					src.position(size);
+					
+					return written;
+				}
+				len = getBlockLength(len);
+				int payloadWord = compressedLen;
+				compressedLen = getBlockLength(compressedLen);
+				if ( off + HEADER_SIZE + (long)compressedLen > mapSize ) {
+					if ( off == 0 ) {
+						throw new EOFException("truncated block: offset=" + pos);
+					}
+					break;
+				}
+				
+				if ( out.remaining() < len ) {
+					written += flush(out, dest);
+					if ( out.capacity() < len ) {
+						out = ByteBuffer.allocateDirect(len);
+					}
+				}
+				long started = System.nanoTime();
+				verifyChecksum(payloadWord, mapped, off + HEADER_SIZE);
+				if ( isStoredBlock(payloadWord) ) {
+					ByteBuffer raw = mapped.duplicate();
+					raw.limit(off + HEADER_SIZE + len).position(off + HEADER_SIZE);
+					out.put(raw);
+				}
+				else {
+					decompressor.decompress(mapped, off + HEADER_SIZE, out, out.position(), len);
+					out.position(out.position() + len);
+				}
+				Lz4Metrics.global().recordDecompress(HEADER_SIZE + compressedLen, len,
+													System.nanoTime() - started);
+				
+				off += HEADER_SIZE + compressedLen;
+			}
+			if ( off == 0 ) {
+				throw new EOFException("truncated block header: offset=" + pos);
+			}
+			pos += off;
+		}
+		written += flush(out, dest);
+		src.position(size);
+		
+		return written;
+	}
+	
+	private static int flush(ByteBuffer buf, WritableByteChannel channel) throws IOException {
+		buf.flip();
+		int nbytes = buf.remaining();
+		while ( buf.hasRemaining() ) {
+			channel.write(buf);
+		}
+		buf.clear();
+		
+		return nbytes;
+	}
+	
+	/**
+	 * 압축/해제 스트림들이 공유하는 버퍼 풀을 반환한다.
+	 * <p>
+	 * 반환된 풀을 통해 버퍼 재사용 통계(hit/miss) 정보를 얻을 수 있다.
+	 * 
+	 * @return	버퍼 풀.
+	 */
+	public static Lz4BufferPool getBufferPool() {
+		return Lz4BufferPool.shared();
+	}
+	
+	/**
+	 * 출력 스트림에 기록되는 데이터를 {@link LZ4BlockOutputStream} 형식으로 압축하는 스트림을 생성한다.
+	 * <p>
+	 * 생성된 스트림의 블럭 압축 통계는 {@link Lz4Metrics#of(Object)}로 얻을 수 있다.
+	 * 
+	 * @param out	압축된 데이터를 기록할 출력 스트림.
+	 * @param blockSize	압축 블럭 크기.
+	 * @return	압축 출력 스트림.
+	 */
 	public static OutputStream toCompressedStream(OutputStream out, int blockSize) {
-		return new LZ4BlockOutputStream(out, blockSize);
+		return new Lz4CompressedOutputStream(out, blockSize, s_compressor.get());
+	}
+	
+	/**
+	 * 주어진 압축 수준으로 출력 스트림에 기록되는 데이터를 압축하는 스트림을 생성한다.
+	 * <p>
+	 * 압축 수준은 {@link LZ4BlockOutputStream}의 블럭 헤더에 기록되기 때문에
+	 * {@link #toDecompressedStream(InputStream)}는 별도의 설정없이 압축을 해제할 수 있다.
+	 * 
+	 * @param out	압축된 데이터를 기록할 출력 스트림.
+	 * @param blockSize	압축 블럭 크기.
+	 * @param level	압축 수준.
+	 * @return	압축 출력 스트림.
+	 * @see #compress(InputStream, int, int)
+	 */
+	public static OutputStream toCompressedStream(OutputStream out, int blockSize, int level) {
+		Utilities.checkArgument(level >= LEVEL_FAST && level <= MAX_LEVEL,
+								"invalid compression level: " + level);
+		
+		return new Lz4CompressedOutputStream(out, blockSize, getCompressor(level));
 	}
 	
 	public static InputStream toDecompressedStream(InputStream in) {
@@ -67,41 +785,434 @@ public class Lz4Compressions {
 	}
 	
 	public static Lz4CompressedInputStream compress(InputStream is) {
-		return new Lz4CompressedInputStream(is, DEFAULT_BLOCK_SIZE);
+		return new Lz4CompressedInputStream(is, Lz4CompressOptions.create());
 	}
 	
 	public static Lz4CompressedInputStream compress(InputStream is, int blockSize) {
-		return new Lz4CompressedInputStream(is, blockSize);
+		return new Lz4CompressedInputStream(is, Lz4CompressOptions.create().blockSize(blockSize));
+	}
+	
+	/**
+	 * 주어진 설정에 따라 입력 스트림을 압축하는 스트림을 생성한다.
+	 * 
+	 * @param is	압축 대상 입력 스트림.
+	 * @param opts	압축 설정.
+	 * @return	압축 스트림.
+	 */
+	public static Lz4CompressedInputStream compress(InputStream is, Lz4CompressOptions opts) {
+		Utilities.checkNotNullArgument(opts, "Lz4CompressOptions");
+		
+		return new Lz4CompressedInputStream(is, opts);
+	}
+	
+	/**
+	 * 주어진 압축 수준으로 입력 스트림을 압축하는 스트림을 생성한다.
+	 * <p>
+	 * 압축 수준은 각 블럭 헤더에 기록되기 때문에 {@link #decompress(InputStream)}는
+	 * 별도의 설정없이 압축을 해제할 수 있다.
+	 * 
+	 * @param is	압축 대상 입력 스트림.
+	 * @param blockSize	압축 블럭 크기.
+	 * @param level	압축 수준. {@link #LEVEL_FAST}인 경우는 빠른 압축기를, 1부터
+	 * 				{@link #MAX_LEVEL} 사이의 값인 경우는 해당 수준의 고압축(HC) 압축기를 사용한다.
+	 * @return	압축 스트림.
+	 */
+	public static Lz4CompressedInputStream compress(InputStream is, int blockSize, int level) {
+		return new Lz4CompressedInputStream(is, Lz4CompressOptions.create()
+																.blockSize(blockSize)
+																.level(level));
+	}
+	
+	/**
+	 * 주어진 입력 스트림을 압축하는 스트림을 생성한다.
+	 * <p>
+	 * {@code writeIndex}가 {@code true}인 경우는 마지막 블럭 뒤에 블럭 색인 트레일러가
+	 * 추가되어, 압축 결과를 파일로 저장하면 {@link Lz4RandomAccessReader}로 색인 생성 없이
+	 * 바로 임의 위치를 읽을 수 있다.
+	 * 
+	 * @param is	압축 대상 입력 스트림.
+	 * @param blockSize	압축 블럭 크기.
+	 * @param writeIndex	블럭 색인 트레일러 기록 여부.
+	 * @return	압축 스트림.
+	 */
+	public static Lz4CompressedInputStream compress(InputStream is, int blockSize, boolean writeIndex) {
+		return new Lz4CompressedInputStream(is, Lz4CompressOptions.create()
+																.blockSize(blockSize)
+																.writeIndex(writeIndex));
+	}
+	
+	public static ReadableByteChannel compress(ReadableByteChannel src) {
+		return new Lz4CompressingChannel(src, Lz4CompressOptions.create());
+	}
+	
+	/**
+	 * 주어진 원본 채널의 데이터를 압축하여 제공하는 채널을 생성한다.
+	 * <p>
+	 * 원본 채널이 non-blocking 모드인 경우, 생성된 채널도 원본 채널에 읽을 데이터가 없으면
+	 * 대기하지 않고 0을 반환한다. 따라서 selector 등을 이용한 이벤트 기반 입출력에서도
+	 * 압축 쓰레드가 데이터를 기다리며 busy-wait하지 않는다.
+	 * 
+	 * @param src	압축 대상 원본 채널.
+	 * @param opts	압축 설정.
+	 * @return	압축 데이터를 제공하는 채널.
+	 */
+	public static ReadableByteChannel compress(ReadableByteChannel src, Lz4CompressOptions opts) {
+		return new Lz4CompressingChannel(src, opts);
+	}
+	
+	/**
+	 * 주어진 입력 스트림을 여러 쓰레드를 이용하여 병렬로 압축하는 스트림을 생성한다.
+	 * <p>
+	 * 생성된 스트림은 {@link #compress(InputStream, int)}와 동일한 블럭 형식을 사용하기
+	 * 때문에 {@link #decompress(InputStream)}로 복원할 수 있다.
+	 * 압축에 사용된 쓰레드 풀은 스트림이 close될 때 함께 종료된다.
+	 * 
+	 * @param is	압축 대상 입력 스트림.
+	 * @param blockSize	압축 블럭 크기.
+	 * @param nworkers	압축에 사용할 쓰레드 수.
+	 * @param queueDepth	미리 읽어 압축을 진행할 최대 블럭 수.
+	 * @return	압축 스트림.
+	 */
+	public static InputStream compressParallel(InputStream is, int blockSize, int nworkers,
+												int queueDepth) {
+		return compressParallel(is, Lz4CompressOptions.create().blockSize(blockSize), nworkers,
+								queueDepth);
+	}
+	
+	/**
+	 * 주어진 입력 스트림을 주어진 압축 설정에 따라 여러 쓰레드를 이용하여 병렬로 압축하는
+	 * 스트림을 생성한다.
+	 * <p>
+	 * 압축 결과는 동일한 설정의 {@link #compress(InputStream, Lz4CompressOptions)}와 동일하다.
+	 * 단, 압축 생략({@link Lz4CompressOptions#skipIncompressible()}) 상태에서도 미리 읽은
+	 * 블럭들은 압축이 시도되기 때문에 압축 생략에 따른 성능 이득은 줄어든다.
+	 * 압축에 사용된 쓰레드 풀은 스트림이 close될 때 함께 종료된다.
+	 * 
+	 * @param is	압축 대상 입력 스트림.
+	 * @param opts	압축 설정.
+	 * @param nworkers	압축에 사용할 쓰레드 수.
+	 * @param queueDepth	미리 읽어 압축을 진행할 최대 블럭 수.
+	 * @return	압축 스트림.
+	 */
+	public static InputStream compressParallel(InputStream is, Lz4CompressOptions opts, int nworkers,
+												int queueDepth) {
+		Utilities.checkArgument(nworkers > 0, "invalid worker count: " + nworkers);
+		
+		return new Lz4ParallelCompressedInputStream(is, opts, new ForkJoinPool(nworkers), true,
+													queueDepth);
+	}
+	
+	/**
+	 * 주어진 입력 스트림을 주어진 executor를 이용하여 병렬로 압축하는 스트림을 생성한다.
+	 * <p>
+	 * 주어진 executor는 스트림이 close되어도 종료되지 않는다.
+	 * 
+	 * @param is	압축 대상 입력 스트림.
+	 * @param blockSize	압축 블럭 크기.
+	 * @param executor	블럭 압축 작업을 수행할 executor.
+	 * @param queueDepth	미리 읽어 압축을 진행할 최대 블럭 수.
+	 * @return	압축 스트림.
+	 */
+	public static InputStream compressParallel(InputStream is, int blockSize, Executor executor,
+												int queueDepth) {
+		return compressParallel(is, Lz4CompressOptions.create().blockSize(blockSize), executor,
+								queueDepth);
+	}
+	
+	/**
+	 * 주어진 입력 스트림을 주어진 압축 설정에 따라 주어진 executor를 이용하여 병렬로 압축하는
+	 * 스트림을 생성한다.
+	 * <p>
+	 * 압축 결과는 동일한 설정의 {@link #compress(InputStream, Lz4CompressOptions)}와 동일하다.
+	 * 주어진 executor는 스트림이 close되어도 종료되지 않는다.
+	 * 
+	 * @param is	압축 대상 입력 스트림.
+	 * @param opts	압축 설정.
+	 * @param executor	블럭 압축 작업을 수행할 executor.
+	 * @param queueDepth	미리 읽어 압축을 진행할 최대 블럭 수.
+	 * @return	압축 스트림.
+	 */
+	public static InputStream compressParallel(InputStream is, Lz4CompressOptions opts,
+												Executor executor, int queueDepth) {
+		Utilities.checkNotNullArgument(executor, "Executor");
+		
+		return new Lz4ParallelCompressedInputStream(is, opts, executor, false, queueDepth);
 	}
 	
 	public static Lz4DecompressedInputStream decompress(InputStream is) {
 		return new Lz4DecompressedInputStream (is);
 	}
 	
-	private static class Lz4CompressedInputStream extends InputStream {
-		private final InputStream m_src;
-		private final int m_blockSize;
+	/**
+	 * 압축 스트림의 블럭들을 미리 읽어 여러 쓰레드를 이용하여 병렬로 압축을 해제하는 스트림을 생성한다.
+	 * <p>
+	 * 압축 해제에 사용된 쓰레드 풀은 스트림이 close될 때 함께 종료된다.
+	 * 
+	 * @param is	{@link #compress(InputStream, int)} 형식의 압축 스트림.
+	 * @param nworkers	압축 해제에 사용할 쓰레드 수.
+	 * @param queueDepth	미리 읽어 압축 해제를 진행할 최대 블럭 수.
+	 * @return	압축 해제 스트림.
+	 */
+	public static InputStream decompressParallel(InputStream is, int nworkers, int queueDepth) {
+		Utilities.checkArgument(nworkers > 0, "invalid worker count: " + nworkers);
+		
+		return new Lz4ParallelDecompressedInputStream(is, new ForkJoinPool(nworkers), true, queueDepth);
+	}
+	
+	/**
+	 * 압축 스트림의 블럭들을 미리 읽어 주어진 executor를 이용하여 병렬로 압축을 해제하는
+	 * 스트림을 생성한다.
+	 * <p>
+	 * 주어진 executor는 스트림이 close되어도 종료되지 않는다.
+	 * 
+	 * @param is	{@link #compress(InputStream, int)} 형식의 압축 스트림.
+	 * @param executor	블럭 압축 해제 작업을 수행할 executor.
+	 * @param queueDepth	미리 읽어 압축 해제를 진행할 최대 블럭 수.
+	 * @return	압축 해제 스트림.
+	 */
+	public static InputStream decompressParallel(InputStream is, Executor executor, int queueDepth) {
+		Utilities.checkNotNullArgument(executor, "Executor");
+		
+		return new Lz4ParallelDecompressedInputStream(is, executor, false, queueDepth);
+	}
+	
+	/**
+	 * 주어진 입력 스트림에서 버퍼를 채울 때까지 데이터를 읽는다.
+	 * <p>
+	 * 입력 스트림이 당장 읽을 데이터가 없다고 0을 반환하는 경우에도 {@link Thread#yield()}로
+	 * 반복 시도하지 않고, 데이터가 도착할 때까지 blocking read로 대기한다.
+	 * 
+	 * @return	읽은 바이트 수. 더 이상 읽을 데이터가 없는 경우는 -1.
+	 */
+	static int readBlock(InputStream is, byte[] buf) throws IOException {
+		int nread = IOUtils.readAtBest(is, buf);
+		while ( nread == 0 ) {
+			int b = is.read();
+			if ( b < 0 ) {
+				return -1;
+			}
+			buf[0] = (byte)b;
+			
+			nread = 1;
+			while ( nread < buf.length ) {
+				int nbytes = is.read(buf, nread, buf.length - nread);
+				if ( nbytes <= 0 ) {
+					break;
+				}
+				nread += nbytes;
+			}
+		}
+		
+		return nread;
+	}
+	
+	static int encodeRawLength(int length, int level) {
+		if ( length < 0 || length > MAX_BLOCK_SIZE ) {
+			throw new IllegalArgumentException("invalid block length: " + length);
+		}
+		
+		return length | (level << LEVEL_SHIFT);
+	}
+	
+	static int getBlockLength(int lengthWord) {
+		return lengthWord & LENGTH_MASK;
+	}
+	
+	static int getBlockLevel(int rawLengthWord) {
+		return (rawLengthWord >>> LEVEL_SHIFT) & LEVEL_MASK;
+	}
+	
+	static boolean isStoredBlock(int compressedLengthWord) {
+		return (compressedLengthWord & STORED_FLAG) != 0;
+	}
+	
+	static boolean hasChecksum(int compressedLengthWord) {
+		return (compressedLengthWord & CHECKSUM_FLAG) != 0;
+	}
+	
+	/**
+	 * 대상 배열에 기록된 블럭 데이터 바로 뒤에 체크섬을 추가하고, 갱신된 압축 길이 값을 반환한다.
+	 * 대상 배열에는 블럭 데이터 뒤에 {@link #CHECKSUM_SIZE} 만큼의 공간이 있어야 한다.
+	 */
+	static int appendChecksum(byte[] buf, int payloadOff, int compressedLengthWord) {
+		int payloadLen = getBlockLength(compressedLengthWord);
+		int checksum = s_xxhash.get().hash(buf, payloadOff, payloadLen, CHECKSUM_SEED);
+		putIntBE(ByteBuffer.wrap(buf), payloadOff + payloadLen, checksum);
+		
+		return (compressedLengthWord + CHECKSUM_SIZE) | CHECKSUM_FLAG;
+	}
+	
+	/**
+	 * 블럭 데이터의 체크섬을 검사한다. 체크섬이 기록되지 않은 블럭인 경우는 무시된다.
+	 * 
+	 * @throws LZ4Exception	체크섬이 일치하지 않는 경우.
+	 */
+	static void verifyChecksum(int compressedLengthWord, byte[] src, int srcOff) {
+		if ( hasChecksum(compressedLengthWord) ) {
+			int payloadLen = getBlockLength(compressedLengthWord) - CHECKSUM_SIZE;
+			int checksum = s_xxhash.get().hash(src, srcOff, payloadLen, CHECKSUM_SEED);
+			if ( checksum != getIntBE(ByteBuffer.wrap(src), srcOff + payloadLen) ) {
+				throw new LZ4Exception("block checksum mismatch");
+			}
+		}
+	}
+	
+	static void verifyChecksum(int compressedLengthWord, ByteBuffer src, int srcOff) {
+		if ( hasChecksum(compressedLengthWord) ) {
+			int payloadLen = getBlockLength(compressedLengthWord) - CHECKSUM_SIZE;
+			int checksum = s_xxhash.get().hash(src, srcOff, payloadLen, CHECKSUM_SEED);
+			if ( checksum != getIntBE(src, srcOff + payloadLen) ) {
+				throw new LZ4Exception("block checksum mismatch");
+			}
+		}
+	}
+	
+	/**
+	 * 주어진 데이터를 압축하여 대상 배열에 기록하고, 블럭 헤더의 압축 길이 값을 반환한다.
+	 * <p>
+	 * 압축 결과가 원본보다 작지 않은 경우는 원본 데이터를 그대로 기록하고
+	 * {@link #STORED_FLAG}를 표시한다. {@code compress}가 {@code false}인 경우는
+	 * 압축을 시도하지 않고 원본 데이터를 그대로 기록한다.
+	 * 대상 배열에는 최소한 {@code maxCompressedLength(len)} 만큼의 공간이 있어야 한다.
+	 */
+	static int compressPayload(LZ4Compressor compressor, byte[] src, int srcOff, int len,
+								byte[] dest, int destOff, boolean compress) {
+		if ( compress ) {
+			int ncompresseds = compressor.compress(src, srcOff, len, dest, destOff,
+													dest.length - destOff);
+			if ( ncompresseds < len ) {
+				return ncompresseds;
+			}
+		}
+		
+		System.arraycopy(src, srcOff, dest, destOff, len);
+		return len | STORED_FLAG;
+	}
+	
+	static void decompressPayload(LZ4FastDecompressor decompressor, int compressedLengthWord,
+									byte[] src, int srcOff, byte[] dest, int destOff, int len) {
+		verifyChecksum(compressedLengthWord, src, srcOff);
+		if ( isStoredBlock(compressedLengthWord) ) {
+			System.arraycopy(src, srcOff, dest, destOff, len);
+		}
+		else {
+			decompressor.decompress(src, srcOff, dest, destOff, len);
+		}
+	}
+	
+	static LZ4Compressor getCompressor(int level) {
+		return (level == LEVEL_FAST) ? s_fact.get().fastCompressor()
+									: s_fact.get().highCompressor(level);
+	}
+	
+	// 버퍼의 byte-order 설정과 무관하게 블럭 헤더는 big-endian으로 기록한다.
+	static int getIntBE(ByteBuffer buf, int index) {
+		return ((buf.get(index) & 0xFF) << 24) | ((buf.get(index+1) & 0xFF) << 16)
+				| ((buf.get(index+2) & 0xFF) << 8) | (buf.get(index+3) & 0xFF);
+	}
+	
+	static void putIntBE(ByteBuffer buf, int index, int value) {
+		buf.put(index, (byte)(value >>> 24));
+		buf.put(index+1, (byte)(value >>> 16));
+		buf.put(index+2, (byte)(value >>> 8));
+		buf.put(index+3, (byte)value);
+	}
+	
+	private static class Lz4CompressedOutputStream extends FilterOutputStream implements Lz4Metrics.Source {
+		private final Lz4Metrics m_metrics;
+		private boolean m_closed = false;
+		
+		Lz4CompressedOutputStream(OutputStream out, int blockSize, LZ4Compressor compressor) {
+			this(out, blockSize, compressor, Lz4Metrics.newStreamMetrics());
+		}
+		
+		private Lz4CompressedOutputStream(OutputStream out, int blockSize, LZ4Compressor compressor,
+											Lz4Metrics metrics) {
+			super(new LZ4BlockOutputStream(out, blockSize, new MeteredCompressor(compressor, metrics)));
+			
+			m_metrics = metrics;
+		}
+		
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+		}
+		
+		@Override
+		public void close() throws IOException {
+			if ( !m_closed ) {
+				m_closed = true;
+				try {
+					super.close();
+				}
+				finally {
+					m_metrics.notifyClosed(getClass().getSimpleName());
+				}
+			}
+		}
+		
+		@Override
+		public Lz4Metrics getMetrics() {
+			return m_metrics;
+		}
+		
+		@Override
+		public String toString() {
+			return String.format("%s: %s", getClass().getSimpleName(), m_metrics);
+		}
+	}
+	
+	// LZ4BlockOutputStream이 블럭을 압축할 때마다 통계를 기록하기 위해 압축기를 감싼다.
+	// 압축 결과가 원본보다 크면 LZ4BlockOutputStream은 원본을 그대로 저장한다.
+	private static final class MeteredCompressor extends LZ4Compressor {
+		private static final int BLOCK_HEADER_SIZE = 21;	// LZ4BlockOutputStream 블럭 헤더 크기
 		
 		private final LZ4Compressor m_compressor;
-		private final ByteBuffer m_header = ByteBuffer.allocate(HEADER_SIZE);
-		private final byte[] m_rawBuffer;
-		private final byte[] m_compressed;
+		private final Lz4Metrics m_metrics;
+		
+		MeteredCompressor(LZ4Compressor compressor, Lz4Metrics metrics) {
+			m_compressor = compressor;
+			m_metrics = metrics;
+		}
+
+		@Override
+		public int compress(byte[] src, int srcOff, int srcLen, byte[] dest, int destOff, int maxDestLen) {
+			long started = System.nanoTime();
+			int ncompresseds = m_compressor.compress(src, srcOff, srcLen, dest, destOff, maxDestLen);
+			m_metrics.recordCompress(srcLen, BLOCK_HEADER_SIZE + Math.min(ncompresseds, srcLen),
+									System.nanoTime() - started);
+			return ncompresseds;
+		}
+
+		@Override
+		public int compress(ByteBuffer src, int srcOff, int srcLen, ByteBuffer dest, int destOff,
+							int maxDestLen) {
+			long started = System.nanoTime();
+			int ncompresseds = m_compressor.compress(src, srcOff, srcLen, dest, destOff, maxDestLen);
+			m_metrics.recordCompress(srcLen, BLOCK_HEADER_SIZE + Math.min(ncompresseds, srcLen),
+									System.nanoTime() - started);
+			return ncompresseds;
+		}
+	}
+	
+	private static class Lz4CompressedInputStream extends InputStream implements Lz4Metrics.Source {
+		private final InputStream m_src;
+		private final Lz4BlockEncoder m_encoder;
+		private final Lz4Metrics m_metrics = Lz4Metrics.newStreamMetrics();
+		
+		private byte[] m_rawBuffer;
+		private byte[] m_compressed;
 		private int m_remains;
 		private int m_offset;
-
-		private long m_blockCount =0;
-		private long m_total =0;
-		private long m_totalCompressed =0;
+		private boolean m_srcEOF = false;
 		
-		public Lz4CompressedInputStream(InputStream src, int blockSize) {
+		public Lz4CompressedInputStream(InputStream src, Lz4CompressOptions opts) {
 			Utilities.checkNotNullArgument(src, "Source InputStream");
-			Utilities.checkArgument(blockSize > 0, "invalid block-size: " + blockSize);
 			
 			m_src = src;
-			m_blockSize = blockSize;
-			m_compressor = s_fact.get().fastCompressor();
-			m_rawBuffer = new byte[m_blockSize];
-			m_compressed = new byte[m_compressor.maxCompressedLength(m_blockSize) + HEADER_SIZE];
+			m_encoder = new Lz4BlockEncoder(opts, m_metrics);
+			m_rawBuffer = Lz4BufferPool.shared().borrow(m_encoder.getBlockSize());
+			m_compressed = Lz4BufferPool.shared().borrow(m_encoder.getMaxEncodedLength());
 			m_remains = 0;
 		}
 
@@ -146,70 +1257,85 @@ public class Lz4Compressions {
 
 		@Override
 	    public void close() throws IOException {
-			printCompressionRatio();
+			if ( m_rawBuffer != null ) {
+				Lz4BufferPool.shared().release(m_rawBuffer);
+				Lz4BufferPool.shared().release(m_compressed);
+				m_rawBuffer = null;
+				m_compressed = null;
+				m_remains = -1;
+				
+				m_metrics.notifyClosed(getClass().getSimpleName());
+			}
+		}
+		
+		@Override
+		public Lz4Metrics getMetrics() {
+			return m_metrics;
 		}
 		
 		@Override
 		public String toString() {
-			return String.format("block[%d]=%d:%d, %d -> %d", m_blockCount,
-									m_offset+m_remains, m_offset, m_total, m_totalCompressed);
+			Lz4Metrics.Snapshot snapshot = m_metrics.snapshot();
+			return String.format("block[%d]=%d:%d, %d -> %d", snapshot.getCompressBlocks(),
+									m_offset+m_remains, m_offset, snapshot.getCompressInBytes(),
+									snapshot.getCompressOutBytes());
 		}
 		
 		private int compressNextBlock() throws IOException {
-			int nread;
-			while ( (nread = IOUtils.readAtBest(m_src, m_rawBuffer)) == 0 ) {
-				Thread.yield();
-			}
-			if ( nread == -1 ) {
+			if ( m_srcEOF ) {
 				return m_remains = -1;
 			}
-			m_total += nread;
 			
-			int ncompresseds = m_compressor.compress(m_rawBuffer, 0, nread, m_compressed,
-													HEADER_SIZE, m_compressed.length-HEADER_SIZE);
-			m_header.clear();
-			m_header.putInt(nread)
-					.putInt(ncompresseds)
-					.flip();
-			m_header.get(m_compressed, 0, HEADER_SIZE);
-			m_totalCompressed += ncompresseds;
+			int nread = readBlock(m_src, m_rawBuffer);
+			if ( nread == -1 ) {
+				m_srcEOF = true;
+				
+				ByteBuffer trailer = m_encoder.getIndexTrailer();
+				return (trailer != null) ? emitIndexTrailer(trailer) : (m_remains = -1);
+			}
 			
 			m_offset = 0;
-			return m_remains = HEADER_SIZE + ncompresseds;
+			return m_remains = m_encoder.encode(m_rawBuffer, 0, nread, m_compressed, 0);
 		}
 		
-		private void printCompressionRatio() {
-			if ( s_logger.isDebugEnabled() ) {
-				String msg = String.format("compressed: total=%s, output=%s, ratio=%.1f%%",
-											UnitUtils.toByteSizeString(m_total),
-											UnitUtils.toByteSizeString(m_totalCompressed),
-											(m_totalCompressed*100.)/m_total);
-				s_logger.debug(msg);
+		private int emitIndexTrailer(ByteBuffer trailer) {
+			if ( m_compressed.length < trailer.remaining() ) {
+				Lz4BufferPool.shared().release(m_compressed);
+				m_compressed = Lz4BufferPool.shared().borrow(trailer.remaining());
 			}
+			
+			m_offset = 0;
+			m_remains = trailer.remaining();
+			trailer.get(m_compressed, 0, m_remains);
+			
+			return m_remains;
 		}
 	}
 	
-	private static class Lz4DecompressedInputStream extends InputStream {
+	private static class Lz4DecompressedInputStream extends InputStream implements Lz4Metrics.Source {
+		private static final byte[] EMPTY_BUFFER = new byte[0];
+		private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+		
 		private final InputStream m_src;
 		
 		private final LZ4FastDecompressor m_decompressor;
 		private final byte[] m_header = new byte[HEADER_SIZE];
+		private int m_level = LEVEL_FAST;
 		private byte[] m_compressedBuffer;
 		private byte[] m_buffer;
 		private int m_remains;
 		private int m_offset;
-		
-		private long m_blockCount =0;
-		private long m_total =0;
-		private long m_totalCompressed =0;
+		private int m_blockLength;		// 마지막으로 헤더를 읽은 블럭의 원본 길이
+		private int m_payloadWord;		// 마지막으로 헤더를 읽은 블럭의 압축 길이 값 (속성 bit 포함)
+		private final Lz4Metrics m_metrics = Lz4Metrics.newStreamMetrics();
 		
 		private Lz4DecompressedInputStream(InputStream compressedStream) {
 			Utilities.checkNotNullArgument(compressedStream, "Lz4Compressed InputStream");
 			
 			m_src = compressedStream;
 			m_decompressor = s_fact.get().fastDecompressor();
-			m_compressedBuffer = new byte[0];
-			m_buffer = new byte[0];
+			m_compressedBuffer = EMPTY_BUFFER;
+			m_buffer = EMPTY_BUFFER;
 			m_remains = 0;
 			m_offset = 0;
 		}
@@ -255,53 +1381,197 @@ public class Lz4Compressions {
 
 		@Override
 	    public void close() throws IOException {
-			printCompressionRatio();
+			if ( m_buffer != null ) {
+				Lz4BufferPool.shared().release(m_buffer);
+				Lz4BufferPool.shared().release(m_compressedBuffer);
+				m_buffer = null;
+				m_compressedBuffer = null;
+				m_remains = -1;
+				
+				m_metrics.notifyClosed(getClass().getSimpleName());
+			}
 			m_src.close();
 		}
 		
+		@Override
+		public Lz4Metrics getMetrics() {
+			return m_metrics;
+		}
+		
+		/**
+		 * 남은 데이터를 블럭 단위로 대상 스트림에 직접 기록한다.
+		 * <p>
+		 * 압축 해제된 각 블럭은 중간 복사 없이 내부 버퍼에서 바로 대상 스트림으로 기록된다.
+		 */
+		@Override
+		public long transferTo(OutputStream out) throws IOException {
+			Utilities.checkNotNullArgument(out, "target OutputStream");
+		
+			long total = 0;
+			while ( m_remains >= 0 ) {
+				if ( m_remains > 0 ) {
+					out.write(m_buffer, m_offset, m_remains);
+					total += m_remains;
+					m_offset += m_remains;
+					m_remains = 0;
+				}
+				if ( decompressNextBlock() < 0 ) {
+					break;
+				}
+			}
+		
+			return total;
+		}
+		
+		/**
+		 * 남은 데이터를 모두 읽어 반환한다.
+		 * <p>
+		 * 블럭 헤더에 기록된 원본 길이를 이용하여 결과 배열의 크기를 미리 확보하고,
+		 * 각 블럭을 결과 배열에 직접 압축 해제한다.
+		 */
+		@Override
+		public byte[] readAllBytes() throws IOException {
+			byte[] result = EMPTY_BUFFER;
+			int length = 0;
+			if ( m_remains > 0 ) {
+				result = Arrays.copyOfRange(m_buffer, m_offset, m_offset + m_remains);
+				length = m_remains;
+				m_offset += m_remains;
+				m_remains = 0;
+			}
+		
+			while ( m_remains >= 0 && readBlockHeader() ) {
+				if ( result.length - length < m_blockLength ) {
+					long required = (long)length + m_blockLength;
+					if ( required > MAX_ARRAY_SIZE ) {
+						throw new OutOfMemoryError("required array size too large: " + required);
+					}
+					result = Arrays.copyOf(result, (int)Math.min(Math.max(required, 2L * result.length),
+																	MAX_ARRAY_SIZE));
+				}
+				decodeBlock(result, length);
+				length += m_blockLength;
+			}
+		
+			return (result.length == length) ? result : Arrays.copyOf(result, length);
+		}
+		
+		/**
+		 * 주어진 바이트 수만큼의 데이터를 건너뛴다.
+		 * <p>
+		 * 건너뛸 범위에 완전히 포함되는 블럭은 압축 해제하지 않고 압축 데이터만 건너뛴다.
+		 * 따라서 건너뛴 블럭의 체크섬은 검사되지 않는다.
+		 */
+		@Override
+		public long skip(long n) throws IOException {
+			if ( n <= 0 || m_remains < 0 ) {
+				return 0;
+			}
+		
+			long skipped = Math.min(n, m_remains);
+			m_offset += skipped;
+			m_remains -= skipped;
+			while ( skipped < n && m_remains >= 0 && readBlockHeader() ) {
+				if ( n - skipped >= m_blockLength ) {
+					skipFully(getBlockLength(m_payloadWord));
+					skipped += m_blockLength;
+				}
+				else {
+					ensureBufferCapacity(m_blockLength);
+					decodeBlock(m_buffer, 0);
+					m_offset = (int)(n - skipped);
+					m_remains = m_blockLength - m_offset;
+					skipped = n;
+				}
+			}
+		
+			return skipped;
+		}
+		
 		private int decompressNextBlock() throws IOException {
+			if ( !readBlockHeader() ) {
+				return -1;
+			}
+		
+			ensureBufferCapacity(m_blockLength);
+			decodeBlock(m_buffer, 0);
+			m_remains = m_blockLength;
+			m_offset = 0;
+		
+			return m_remains;
+		}
+		
+		// 다음 블럭의 헤더를 읽는다. 더 이상 블럭이 없는 경우는 false를 반환한다.
+		private boolean readBlockHeader() throws IOException {
 			try {
 				IOUtils.readFully(m_src, m_header, 0, HEADER_SIZE);
 			}
 			catch ( EOFException e ) {
-				return -1;
+				return false;
 			}
 			ByteBuffer headerBuf = ByteBuffer.wrap(m_header);
 			int len = headerBuf.getInt();
-			int compressedLen = headerBuf.getInt();
-			
-			if ( m_buffer.length < len ) {
-				m_buffer = new byte[len];
-				int maxCompressedBlockSize = maxCompressedLength(len) + HEADER_SIZE;
-				m_compressedBuffer = new byte[maxCompressedBlockSize];
+			m_payloadWord = headerBuf.getInt();
+			if ( len == Lz4BlockIndex.INDEX_MARK ) {
+				m_remains = -1;
+				return false;
 			}
-			
+			m_level = getBlockLevel(len);
+			m_blockLength = getBlockLength(len);
+		
+			return true;
+		}
+		
+		// 헤더를 읽은 블럭의 압축 데이터를 읽어 주어진 배열에 압축 해제한다.
+		private void decodeBlock(byte[] dest, int destOff) throws IOException {
+			int compressedLen = getBlockLength(m_payloadWord);
+			int maxCompressedLen = maxCompressedLength(m_blockLength) + CHECKSUM_SIZE;
+			if ( compressedLen > maxCompressedLen ) {
+				throw new LZ4Exception(String.format("corrupted block header: block=%d, length=%d, "
+													+ "compressed=%d, max=%d",
+													m_metrics.snapshot().getDecompressBlocks(),
+													m_blockLength, compressedLen, maxCompressedLen));
+			}
+			if ( m_compressedBuffer.length < compressedLen ) {
+				Lz4BufferPool.shared().release(m_compressedBuffer);
+				m_compressedBuffer = Lz4BufferPool.shared().borrow(compressedLen);
+			}
+		
 			IOUtils.readFully(m_src, m_compressedBuffer, 0, compressedLen);
-			m_decompressor.decompress(m_compressedBuffer, 0, m_buffer, 0, len);
-			m_remains = len;
-			m_offset = 0;
-			
-			++m_blockCount;
-			m_total += len;
-			m_totalCompressed += compressedLen;
-			
-			return m_remains;
+			long started = System.nanoTime();
+			decompressPayload(m_decompressor, m_payloadWord, m_compressedBuffer, 0, dest, destOff,
+								m_blockLength);
+			m_metrics.recordDecompress(HEADER_SIZE + compressedLen, m_blockLength,
+										System.nanoTime() - started);
 		}
 		
-		@Override
-		public String toString() {
-			return String.format("block[%d]=%d:%d, %d -> %d", m_blockCount,
-									m_offset+m_remains, m_offset, m_totalCompressed, m_total);
+		private void ensureBufferCapacity(int len) {
+			if ( m_buffer.length < len ) {
+				Lz4BufferPool.shared().release(m_buffer);
+				m_buffer = Lz4BufferPool.shared().borrow(len);
+			}
 		}
 		
-		private void printCompressionRatio() {
-			if ( s_logger.isInfoEnabled() && m_totalCompressed > 0 ) {
-				String msg = String.format("decompressed: total=%s, output=%s, ratio=%.1f%%",
-											UnitUtils.toByteSizeString(m_totalCompressed),
-											UnitUtils.toByteSizeString(m_total),
-											(m_totalCompressed*100.)/m_total);
-				s_logger.info(msg);
+		private void skipFully(int len) throws IOException {
+			long remains = len;
+			while ( remains > 0 ) {
+				long nskipped = m_src.skip(remains);
+				if ( nskipped <= 0 ) {
+					if ( m_src.read() < 0 ) {
+						throw new EOFException("truncated LZ4 block: remains=" + remains);
+					}
+					nskipped = 1;
+				}
+				remains -= nskipped;
 			}
 		}
+		
+		@Override
+		public String toString() {
+			Lz4Metrics.Snapshot snapshot = m_metrics.snapshot();
+			return String.format("block[%d]=%d:%d, %d -> %d, level=%d", snapshot.getDecompressBlocks(),
+									m_offset+m_remains, m_offset, snapshot.getDecompressInBytes(),
+									snapshot.getDecompressOutBytes(), m_level);
+		}
 	}
 }
@@ -0,0 +1,524 @@
+package utils.io;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.xxhash.XXHashFactory;
+import utils.Utilities;
+
+/**
+ * 작은 레코드들을 압축하기 위한 LZ4 공유 사전(dictionary).
+ * <p>
+ * 수백 바이트 정도의 작은 레코드들은 개별적으로 압축하면 참조할 이전 데이터가 부족하여
+ * 압축 효과가 거의 없다. 공유 사전은 레코드들에 자주 등장하는 데이터 조각들을 모아둔 것으로,
+ * 각 레코드는 사전 뒤에 이어진 데이터인 것처럼 압축되어 사전의 내용을 참조할 수 있다.
+ * 압축된 레코드는 LZ4 블럭 형식을 따르며 다음과 같은 형태를 갖는다.
+ * <pre>
+ * [dictionaryId:int][rawLength:varint][LZ4 block]
+ * </pre>
+ * 사전 식별자는 사전 내용의 xxHash32 값으로, 압축 해제시 사용된 사전이 맞는지 확인하거나
+ * 여러 사전 중 해당 사전을 찾는 데 사용된다({@link #getDictionaryId(byte[], int)}).
+ * <p>
+ * lz4-java는 사전을 이용한 블럭 압축 API를 제공하지 않기 때문에, 압축과 압축 해제는
+ * 이 클래스에서 직접 LZ4 블럭 형식으로 수행한다.
+ * 객체는 쓰레드 안전하며, 압축 작업 버퍼는 쓰레드별로 유지된다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+public final class Lz4Dictionary {
+	/** 사전의 최대 크기. LZ4 블럭의 최대 참조 거리(64KB)로 제한된다. */
+	public static final int MAX_DICTIONARY_SIZE = 64 * 1024 - 1;
+	public static final int DEFAULT_DICTIONARY_SIZE = 32 * 1024;
+
+	private static final int ID_SIZE = 4;
+	private static final int MIN_MATCH = 4;
+	private static final int LAST_LITERALS = 5;
+	private static final int MF_LIMIT = 12;
+	private static final int MAX_DISTANCE = 65535;
+	private static final int HASH_LOG = 12;
+	private static final int SKIP_TRIGGER = 6;
+	private static final int RUN_MASK = 0x0F;
+
+	private static final int GRAM_SIZE = 8;
+	private static final int SEGMENT_SIZE = 64;
+	private static final int SEGMENT_STEP = 16;
+
+	private final byte[] m_content;
+	private final int m_id;
+	private final int[] m_table;	// 사전 내 위치들로 초기화된 hash table
+	private final ThreadLocal<Workspace> m_workspace = ThreadLocal.withInitial(Workspace::new);
+
+	/**
+	 * 주어진 내용으로 구성된 사전을 생성한다.
+	 * <p>
+	 * 저장된 사전을 다시 적재하는 경우에 사용되며, 동일한 내용의 사전은 동일한 식별자를 갖는다.
+	 *
+	 * @param content	사전 내용.
+	 * @return	사전 객체.
+	 */
+	public static Lz4Dictionary of(byte[] content) {
+		Utilities.checkNotNullArgument(content, "dictionary content");
+		Utilities.checkArgument(content.length <= MAX_DICTIONARY_SIZE,
+								"too large dictionary: size=" + content.length);
+
+		return new Lz4Dictionary(content.clone());
+	}
+
+	public static Lz4Dictionary train(Iterable<byte[]> samples) {
+		return train(samples, DEFAULT_DICTIONARY_SIZE);
+	}
+
+	/**
+	 * 주어진 표본 레코드들로부터 사전을 생성한다.
+	 * <p>
+	 * 표본들에서 자주 등장하는 {@value #GRAM_SIZE}바이트 조각들을 많이 포함하는 구간들을
+	 * 차례로 선택하여 사전을 채운다. 이미 선택된 구간에 포함된 조각들은 이후 구간 선택에서
+	 * 고려되지 않으며, 더 유용한 구간일수록 사전의 끝 부분(레코드와 가까운 위치)에 놓인다.
+	 * 표본들의 전체 크기가 사전 크기보다 작은 경우는 표본들을 그대로 이어 붙여 사용한다.
+	 *
+	 * @param samples	표본 레코드들.
+	 * @param dictSize	사전의 최대 크기.
+	 * @return	사전 객체.
+	 */
+	public static Lz4Dictionary train(Iterable<byte[]> samples, int dictSize) {
+		Utilities.checkNotNullArgument(samples, "samples");
+		Utilities.checkArgument(dictSize > 0 && dictSize <= MAX_DICTIONARY_SIZE,
+								"invalid dictionary size: " + dictSize);
+
+		List<byte[]> sampleList = new ArrayList<>();
+		long total = 0;
+		for ( byte[] sample: samples ) {
+			sampleList.add(sample);
+			total += sample.length;
+		}
+		if ( total <= dictSize ) {
+			byte[] content = new byte[(int)total];
+			int off = 0;
+			for ( byte[] sample: sampleList ) {
+				System.arraycopy(sample, 0, content, off, sample.length);
+				off += sample.length;
+			}
+			return new Lz4Dictionary(content);
+		}
+
+		Map<Long,int[]> freqs = new HashMap<>();
+		for ( byte[] sample: sampleList ) {
+			for ( int i =0; i + GRAM_SIZE <= sample.length; ++i ) {
+				freqs.computeIfAbsent(readGram(sample, i), k -> new int[1])[0]++;
+			}
+		}
+
+		PriorityQueue<Segment> candidates = new PriorityQueue<>();
+		for ( byte[] sample: sampleList ) {
+			for ( int start =0; start + GRAM_SIZE <= sample.length; start += SEGMENT_STEP ) {
+				Segment seg = new Segment(sample, start, Math.min(start + SEGMENT_SIZE, sample.length));
+				seg.m_score = seg.score(freqs);
+				candidates.add(seg);
+				if ( seg.m_end == sample.length ) {
+					break;
+				}
+			}
+		}
+
+		// 선택된 구간의 조각들은 빈도를 0으로 만들어 다시 선택되지 않도록 한다.
+		List<Segment> selecteds = new ArrayList<>();
+		int remains = dictSize;
+		while ( remains > 0 && !candidates.isEmpty() ) {
+			Segment seg = candidates.poll();
+			long score = seg.score(freqs);
+			if ( score <= 0 ) {
+				continue;
+			}
+			if ( !candidates.isEmpty() && score < candidates.peek().m_score ) {
+				seg.m_score = score;
+				candidates.add(seg);
+				continue;
+			}
+
+			int length = Math.min(seg.m_end - seg.m_start, remains);
+			selecteds.add(new Segment(seg.m_sample, seg.m_end - length, seg.m_end));
+			remains -= length;
+			for ( int i = seg.m_start; i + GRAM_SIZE <= seg.m_end; ++i ) {
+				int[] freq = freqs.get(readGram(seg.m_sample, i));
+				freq[0] = 0;
+			}
+		}
+
+		byte[] content = new byte[dictSize - remains];
+		int off = content.length;
+		for ( Segment seg: selecteds ) {
+			int length = seg.m_end - seg.m_start;
+			off -= length;
+			System.arraycopy(seg.m_sample, seg.m_start, content, off, length);
+		}
+
+		return new Lz4Dictionary(content);
+	}
+
+	private Lz4Dictionary(byte[] content) {
+		m_content = content;
+		m_id = XXHashFactory.fastestInstance().hash32().hash(content, 0, content.length, 0);
+
+		m_table = new int[1 << HASH_LOG];
+		Arrays.fill(m_table, -1);
+		for ( int i =0; i + MIN_MATCH <= content.length; ++i ) {
+			m_table[hash(readInt(content, i))] = i;
+		}
+	}
+
+	/**
+	 * 사전 식별자를 반환한다.
+	 *
+	 * @return	사전 식별자.
+	 */
+	public int getId() {
+		return m_id;
+	}
+
+	public int size() {
+		return m_content.length;
+	}
+
+	public byte[] getContent() {
+		return m_content.clone();
+	}
+
+	/**
+	 * 주어진 크기의 레코드를 압축할 때 필요한 최대 버퍼 크기를 반환한다.
+	 *
+	 * @param length	레코드 크기.
+	 * @return	최대 압축 결과 크기.
+	 */
+	public static int maxCompressedLength(int length) {
+		return ID_SIZE + Lz4Compressions.MAX_VARINT_SIZE + length + length / 255 + 16;
+	}
+
+	public byte[] compress(byte[] record) {
+		return compress(record, 0, record.length);
+	}
+
+	/**
+	 * 주어진 레코드를 사전을 이용하여 압축한다.
+	 * <p>
+	 * 압축은 쓰레드별로 유지되는 작업 버퍼에서 수행되고, 결과 배열만 정확한 크기로 한번 할당된다.
+	 *
+	 * @param bytes	레코드를 담은 배열.
+	 * @param offset	레코드 시작 위치.
+	 * @param length	레코드 크기.
+	 * @return	압축된 레코드.
+	 */
+	public byte[] compress(byte[] bytes, int offset, int length) {
+		Utilities.checkNotNullArgument(bytes, "record");
+		Utilities.checkArgument(offset >= 0 && length >= 0 && offset + length <= bytes.length,
+								"invalid range: offset=" + offset + ", length=" + length);
+
+		long started = System.nanoTime();
+		Workspace ws = m_workspace.get();
+		byte[] window = ws.window(length);
+		System.arraycopy(bytes, offset, window, m_content.length, length);
+		System.arraycopy(m_table, 0, ws.m_hashTable, 0, m_table.length);
+
+		byte[] out = ws.output(maxCompressedLength(length));
+		Lz4Compressions.putIntBE(ByteBuffer.wrap(out), 0, m_id);
+		int op = ID_SIZE + Lz4Compressions.writeVarInt(length, out, ID_SIZE);
+		op = encode(window, m_content.length, m_content.length + length, ws.m_hashTable, out, op);
+		Lz4Metrics.global().recordCompress(length, op, System.nanoTime() - started);
+
+		return Arrays.copyOf(out, op);
+	}
+
+	public byte[] decompress(byte[] compressed) {
+		return decompress(compressed, 0, compressed.length);
+	}
+
+	/**
+	 * 이 사전을 이용하여 압축된 레코드를 압축 해제한다.
+	 *
+	 * @param bytes	압축된 레코드를 담은 배열.
+	 * @param offset	압축된 레코드 시작 위치.
+	 * @param length	압축된 레코드 크기.
+	 * @return	압축 해제된 레코드.
+	 * @throws IllegalArgumentException	다른 사전으로 압축된 레코드인 경우.
+	 * @throws LZ4Exception	압축 데이터가 손상된 경우.
+	 */
+	public byte[] decompress(byte[] bytes, int offset, int length) {
+		Utilities.checkNotNullArgument(bytes, "compressed record");
+		Utilities.checkArgument(length > ID_SIZE && offset >= 0 && offset + length <= bytes.length,
+								"invalid range: offset=" + offset + ", length=" + length);
+
+		int dictId = getDictionaryId(bytes, offset);
+		if ( dictId != m_id ) {
+			throw new IllegalArgumentException(String.format("dictionary mismatch: expected=%08x, actual=%08x",
+																m_id, dictId));
+		}
+
+		int end = offset + length;
+		long lenInfo = Lz4Compressions.readVarInt(bytes, offset + ID_SIZE, end);
+		int rawLength = (int)lenInfo;
+		int srcOff = offset + ID_SIZE + (int)(lenInfo >>> 32);
+		Lz4Compressions.checkBlockLength(rawLength, end - srcOff, offset);
+
+		byte[] decompressed = new byte[rawLength];
+		long started = System.nanoTime();
+		decode(bytes, srcOff, end, m_content, decompressed);
+		Lz4Metrics.global().recordDecompress(length, rawLength, System.nanoTime() - started);
+		return decompressed;
+	}
+
+	/**
+	 * 압축된 레코드에 기록된 사전 식별자를 반환한다.
+	 *
+	 * @param bytes	압축된 레코드를 담은 배열.
+	 * @param offset	압축된 레코드 시작 위치.
+	 * @return	사전 식별자.
+	 */
+	public static int getDictionaryId(byte[] bytes, int offset) {
+		return Lz4Compressions.getIntBE(ByteBuffer.wrap(bytes), offset);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Lz4Dictionary[id=%08x, size=%d]", m_id, m_content.length);
+	}
+
+	// window[start, end)의 데이터를 LZ4 블럭 형식으로 압축한다. window[0, start)에는 사전이 놓여 있고,
+	// hash table은 사전 내 위치들로 초기화되어 있어야 한다.
+	private static int encode(byte[] window, int start, int end, int[] table, byte[] dest, int op) {
+		int anchor = start;
+		int limit = end - MF_LIMIT;
+		int matchLimit = end - LAST_LITERALS;
+
+		if ( end - start > MF_LIMIT ) {
+			int ip = start;
+			outer:
+			while ( true ) {
+				int ref;
+				int searchCount = 1 << SKIP_TRIGGER;
+				while ( true ) {
+					int h = hash(readInt(window, ip));
+					ref = table[h];
+					table[h] = ip;
+					if ( ref >= 0 && ip - ref <= MAX_DISTANCE && readInt(window, ref) == readInt(window, ip) ) {
+						break;
+					}
+
+					ip += searchCount++ >>> SKIP_TRIGGER;
+					if ( ip > limit ) {
+						break outer;
+					}
+				}
+
+				while ( ip > anchor && ref > 0 && window[ip-1] == window[ref-1] ) {
+					--ip;
+					--ref;
+				}
+
+				int tokenPos = op++;
+				dest[tokenPos] = 0;
+				int litLen = ip - anchor;
+				op = writeLength(dest, tokenPos, op, litLen, 4);
+				System.arraycopy(window, anchor, dest, op, litLen);
+				op += litLen;
+
+				int offset = ip - ref;
+				dest[op++] = (byte)offset;
+				dest[op++] = (byte)(offset >>> 8);
+
+				ip += MIN_MATCH;
+				ref += MIN_MATCH;
+				int matchStart = ip;
+				while ( ip < matchLimit && window[ip] == window[ref] ) {
+					++ip;
+					++ref;
+				}
+				op = writeLength(dest, tokenPos, op, ip - matchStart, 0);
+
+				anchor = ip;
+				if ( ip > limit ) {
+					break;
+				}
+				table[hash(readInt(window, ip-2))] = ip-2;
+			}
+		}
+
+		int tokenPos = op++;
+		dest[tokenPos] = 0;
+		int litLen = end - anchor;
+		op = writeLength(dest, tokenPos, op, litLen, 4);
+		System.arraycopy(window, anchor, dest, op, litLen);
+
+		return op + litLen;
+	}
+
+	private static int writeLength(byte[] dest, int tokenPos, int op, int length, int shift) {
+		if ( length >= RUN_MASK ) {
+			dest[tokenPos] |= (byte)(RUN_MASK << shift);
+			length -= RUN_MASK;
+			while ( length >= 255 ) {
+				dest[op++] = (byte)255;
+				length -= 255;
+			}
+			dest[op++] = (byte)length;
+		}
+		else {
+			dest[tokenPos] |= (byte)(length << shift);
+		}
+
+		return op;
+	}
+
+	// src[ip, srcEnd)의 LZ4 블럭을 dest 크기만큼 압축 해제한다. 손상된 데이터가 레코드 범위
+	// 밖을 읽거나 dest를 넘치게 하지 않도록 모든 읽기와 쓰기 위치를 검사한다.
+	private static void decode(byte[] src, int ip, int srcEnd, byte[] dict, byte[] dest) {
+		int op = 0;
+		int destEnd = dest.length;
+		try {
+			while ( true ) {
+				if ( ip >= srcEnd ) {
+					throw malformed(ip);
+				}
+				int token = src[ip++] & 0xFF;
+				int litLen = token >>> 4;
+				if ( litLen == RUN_MASK ) {
+					int b;
+					do {
+						if ( ip >= srcEnd ) {
+							throw malformed(ip);
+						}
+						b = src[ip++] & 0xFF;
+						litLen += b;
+					} while ( b == 255 );
+				}
+				if ( ip + litLen > srcEnd || op + litLen > destEnd ) {
+					throw malformed(ip);
+				}
+				System.arraycopy(src, ip, dest, op, litLen);
+				ip += litLen;
+				op += litLen;
+				if ( ip == srcEnd ) {
+					if ( op != destEnd ) {
+						throw malformed(ip);
+					}
+					return;
+				}
+
+				if ( ip + 2 > srcEnd ) {
+					throw malformed(ip);
+				}
+				int offset = (src[ip] & 0xFF) | ((src[ip+1] & 0xFF) << 8);
+				ip += 2;
+				int matchLen = token & RUN_MASK;
+				if ( matchLen == RUN_MASK ) {
+					int b;
+					do {
+						if ( ip >= srcEnd ) {
+							throw malformed(ip);
+						}
+						b = src[ip++] & 0xFF;
+						matchLen += b;
+					} while ( b == 255 );
+				}
+				matchLen += MIN_MATCH;
+				if ( offset == 0 || op + matchLen > destEnd || offset > op + dict.length ) {
+					throw malformed(ip);
+				}
+
+				int ref = op - offset;
+				if ( ref < 0 ) {
+					// 사전의 내용을 참조하는 경우
+					int nbytes = Math.min(matchLen, -ref);
+					System.arraycopy(dict, dict.length + ref, dest, op, nbytes);
+					op += nbytes;
+					matchLen -= nbytes;
+					ref = 0;
+				}
+				if ( offset >= matchLen ) {
+					System.arraycopy(dest, ref, dest, op, matchLen);
+					op += matchLen;
+				}
+				else {
+					for ( int i =0; i < matchLen; ++i ) {
+						dest[op++] = dest[ref++];
+					}
+				}
+			}
+		}
+		catch ( ArrayIndexOutOfBoundsException e ) {
+			throw malformed(ip);
+		}
+	}
+
+	private static LZ4Exception malformed(int ip) {
+		return new LZ4Exception("Malformed input at " + ip);
+	}
+
+	private static int hash(int value) {
+		return (value * -1640531535) >>> (32 - HASH_LOG);
+	}
+
+	private static int readInt(byte[] buf, int idx) {
+		return (buf[idx] & 0xFF) | ((buf[idx+1] & 0xFF) << 8)
+				| ((buf[idx+2] & 0xFF) << 16) | ((buf[idx+3] & 0xFF) << 24);
+	}
+
+	private static long readGram(byte[] buf, int idx) {
+		long gram = 0;
+		for ( int i =0; i < GRAM_SIZE; ++i ) {
+			gram = (gram << 8) | (buf[idx+i] & 0xFF);
+		}
+		return gram;
+	}
+
+	private static final class Segment implements Comparable<Segment> {
+		private final byte[] m_sample;
+		private final int m_start;
+		private final int m_end;
+		private long m_score;
+
+		Segment(byte[] sample, int start, int end) {
+			m_sample = sample;
+			m_start = start;
+			m_end = end;
+		}
+
+		long score(Map<Long,int[]> freqs) {
+			long score = 0;
+			for ( int i = m_start; i + GRAM_SIZE <= m_end; ++i ) {
+				score += freqs.get(readGram(m_sample, i))[0];
+			}
+			return score;
+		}
+
+		@Override
+		public int compareTo(Segment other) {
+			return Long.compare(other.m_score, m_score);
+		}
+	}
+
+	// 쓰레드별 압축 작업 버퍼. window의 앞 부분에는 항상 사전 내용이 담겨 있다.
+	private final class Workspace {
+		private byte[] m_window = m_content.clone();
+		private byte[] m_output = new byte[0];
+		private final int[] m_hashTable = new int[1 << HASH_LOG];
+
+		byte[] window(int length) {
+			if ( m_window.length < m_content.length + length ) {
+				m_window = Arrays.copyOf(m_window, m_content.length + length);
+			}
+			return m_window;
+		}
+
+		byte[] output(int length) {
+			if ( m_output.length < length ) {
+				m_output = new byte[length];
+			}
+			return m_output;
+		}
+	}
+}
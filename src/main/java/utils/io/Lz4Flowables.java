@@ -0,0 +1,252 @@
+package utils.io;
+
+import static utils.io.Lz4Compressions.HEADER_SIZE;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.core.FlowableTransformer;
+import io.reactivex.rxjava3.core.Scheduler;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import utils.Utilities;
+
+/**
+ * RxJava {@link Flowable}로 전달되는 데이터를 {@link Lz4Compressions} 블럭 형식으로
+ * 압축/해제하는 transformer들을 제공한다.
+ * <p>
+ * 입력 {@link ByteBuffer}들의 크기는 블럭 크기와 무관하며, 내부에서 블럭 단위로 모아
+ * 압축한다. 출력되는 각 {@link ByteBuffer}는 하나의 블럭에 해당한다.
+ * 모든 transformer는 하위 subscriber의 요청량(backpressure)에 따라 상위 데이터를 요청하며,
+ * 입력 버퍼의 position은 변경하지 않는다. 압축/해제 통계는 {@link Lz4Metrics#global()}에 기록된다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+public final class Lz4Flowables {
+	private static final int DEFAULT_PREFETCH = 2;
+
+	private Lz4Flowables() {
+		throw new AssertionError("Should not be called: class=" + Lz4Flowables.class.getName());
+	}
+
+	public static FlowableTransformer<ByteBuffer,ByteBuffer> compress() {
+		return compress(Lz4CompressOptions.create());
+	}
+
+	/**
+	 * 주어진 설정에 따라 데이터를 압축하는 transformer를 생성한다.
+	 * <p>
+	 * 압축 결과는 {@link Lz4Compressions#compress(java.io.InputStream, Lz4CompressOptions)}의
+	 * 결과와 동일하다.
+	 *
+	 * @param opts	압축 설정.
+	 * @return	압축 transformer.
+	 */
+	public static FlowableTransformer<ByteBuffer,ByteBuffer> compress(Lz4CompressOptions opts) {
+		Utilities.checkNotNullArgument(opts, "Lz4CompressOptions");
+
+		return upstream -> Flowable.defer(() -> {
+			Lz4BlockEncoder encoder = new Lz4BlockEncoder(opts, Lz4Metrics.global());
+			return toRawBlocks(upstream, encoder.getBlockSize())
+						.map(raw -> {
+							byte[] block = new byte[encoder.getMaxEncodedLength()];
+							int length = encoder.encode(raw.array(), 0, raw.remaining(), block, 0);
+							return ByteBuffer.wrap(block, 0, length);
+						})
+						.concatWith(Flowable.defer(() -> toTrailer(encoder)));
+		});
+	}
+
+	/**
+	 * 주어진 scheduler를 이용하여 블럭들을 병렬로 압축하는 transformer를 생성한다.
+	 * <p>
+	 * 블럭들은 입력 순서대로 출력되며, 출력 형식은 {@link #compress(Lz4CompressOptions)}와
+	 * 동일하다. 단, 블럭들이 서로 독립적으로 압축되기 때문에
+	 * {@link Lz4CompressOptions#skipIncompressible()} 설정은 적용되지 않는다.
+	 *
+	 * @param opts	압축 설정.
+	 * @param scheduler	블럭 압축을 수행할 scheduler.
+	 * @param maxConcurrency	동시에 압축할 최대 블럭 수.
+	 * @return	압축 transformer.
+	 */
+	public static FlowableTransformer<ByteBuffer,ByteBuffer> compressParallel(Lz4CompressOptions opts,
+																		Scheduler scheduler,
+																		int maxConcurrency) {
+		Utilities.checkNotNullArgument(opts, "Lz4CompressOptions");
+		Utilities.checkNotNullArgument(scheduler, "Scheduler");
+		Utilities.checkArgument(maxConcurrency > 0, "invalid max-concurrency: " + maxConcurrency);
+
+		return upstream -> Flowable.defer(() -> {
+			Lz4BlockEncoder encoder = new Lz4BlockEncoder(opts, Lz4Metrics.global());
+			return toRawBlocks(upstream, encoder.getBlockSize())
+						.concatMapEager(raw -> Flowable.fromCallable(() -> {
+												byte[] block = new byte[encoder.getMaxEncodedLength()];
+												int length = encoder.encodeBlock(raw.array(), 0,
+																		raw.remaining(), block, 0, true);
+												return ByteBuffer.wrap(block, 0, length);
+											}).subscribeOn(scheduler),
+										maxConcurrency, DEFAULT_PREFETCH)
+						.doOnNext(block -> encoder.append(block.array(), 0))
+						.concatWith(Flowable.defer(() -> toTrailer(encoder)));
+		});
+	}
+
+	/**
+	 * {@link Lz4Compressions} 블럭 형식으로 압축된 데이터를 해제하는 transformer를 생성한다.
+	 * <p>
+	 * 압축 데이터에 색인 트레일러가 포함된 경우는 트레일러 이후의 데이터는 무시된다.
+	 * 압축 데이터가 블럭 중간에서 끝나는 경우는 {@link EOFException} 오류가 발생한다.
+	 *
+	 * @return	압축 해제 transformer.
+	 */
+	public static FlowableTransformer<ByteBuffer,ByteBuffer> decompress() {
+		return upstream -> Flowable.defer(() -> {
+			BlockDecoder decoder = new BlockDecoder();
+			return upstream.concatMapIterable(decoder::feed)
+							.concatWith(Flowable.defer(decoder::finish));
+		});
+	}
+
+	private static Flowable<ByteBuffer> toRawBlocks(Flowable<ByteBuffer> upstream, int blockSize) {
+		RawBlockCollector collector = new RawBlockCollector(blockSize);
+		return upstream.concatMapIterable(collector::feed)
+						.concatWith(Flowable.defer(collector::flush));
+	}
+
+	private static Flowable<ByteBuffer> toTrailer(Lz4BlockEncoder encoder) {
+		ByteBuffer trailer = encoder.getIndexTrailer();
+		return (trailer != null) ? Flowable.just(trailer) : Flowable.empty();
+	}
+
+	/**
+	 * 임의 크기의 입력 버퍼들을 블럭 크기의 원본 데이터 블럭들로 모은다.
+	 */
+	private static final class RawBlockCollector {
+		private final int m_blockSize;
+		private byte[] m_block;
+		private int m_length = 0;
+
+		RawBlockCollector(int blockSize) {
+			m_blockSize = blockSize;
+			m_block = new byte[blockSize];
+		}
+
+		List<ByteBuffer> feed(ByteBuffer buf) {
+			ByteBuffer src = buf.duplicate();
+			List<ByteBuffer> blocks = Collections.emptyList();
+			while ( src.hasRemaining() ) {
+				int nbytes = Math.min(src.remaining(), m_blockSize - m_length);
+				src.get(m_block, m_length, nbytes);
+				m_length += nbytes;
+
+				if ( m_length == m_blockSize ) {
+					if ( blocks.isEmpty() ) {
+						blocks = new ArrayList<>();
+					}
+					blocks.add(ByteBuffer.wrap(m_block));
+					m_block = new byte[m_blockSize];
+					m_length = 0;
+				}
+			}
+
+			return blocks;
+		}
+
+		Flowable<ByteBuffer> flush() {
+			if ( m_length == 0 ) {
+				return Flowable.empty();
+			}
+
+			ByteBuffer last = ByteBuffer.wrap(m_block, 0, m_length);
+			m_length = 0;
+			return Flowable.just(last);
+		}
+	}
+
+	/**
+	 * 임의 크기로 나뉘어 전달되는 압축 데이터에서 블럭들을 찾아 압축을 해제한다.
+	 */
+	private static final class BlockDecoder {
+		private final LZ4FastDecompressor m_decompressor = Lz4Compressions.s_fact.get().fastDecompressor();
+		private final ByteBuffer m_header = ByteBuffer.allocate(HEADER_SIZE);
+		private byte[] m_payload = null;		// 헤더를 모두 읽은 경우에만 null이 아니다.
+		private int m_payloadLength;
+		private int m_payloadFilled;
+		private int m_rawLength;
+		private int m_payloadWord;
+		private boolean m_trailerFound = false;
+		private long m_offset = 0;
+
+		List<ByteBuffer> feed(ByteBuffer buf) throws IOException {
+			ByteBuffer src = buf.duplicate();
+			List<ByteBuffer> blocks = Collections.emptyList();
+			while ( !m_trailerFound && src.hasRemaining() ) {
+				if ( m_payload == null ) {
+					int nbytes = Math.min(src.remaining(), m_header.remaining());
+					ByteBuffer slice = src.duplicate();
+					slice.limit(slice.position() + nbytes);
+					m_header.put(slice);
+					src.position(src.position() + nbytes);
+					if ( m_header.hasRemaining() ) {
+						break;
+					}
+
+					m_header.flip();
+					int len = m_header.getInt();
+					m_payloadWord = m_header.getInt();
+					m_header.clear();
+					if ( len == Lz4BlockIndex.INDEX_MARK ) {
+						m_trailerFound = true;
+						break;
+					}
+					m_rawLength = Lz4Compressions.getBlockLength(len);
+					m_payloadLength = Lz4Compressions.getBlockLength(m_payloadWord);
+					m_payload = new byte[m_payloadLength];
+					m_payloadFilled = 0;
+				}
+
+				int nbytes = Math.min(src.remaining(), m_payloadLength - m_payloadFilled);
+				src.get(m_payload, m_payloadFilled, nbytes);
+				m_payloadFilled += nbytes;
+				if ( m_payloadFilled == m_payloadLength ) {
+					if ( blocks.isEmpty() ) {
+						blocks = new ArrayList<>();
+					}
+					blocks.add(decodeBlock());
+				}
+			}
+
+			return blocks;
+		}
+
+		Flowable<ByteBuffer> finish() {
+			if ( m_payload != null || m_header.position() > 0 ) {
+				return Flowable.error(new EOFException("truncated LZ4 block: offset=" + m_offset));
+			}
+			return Flowable.empty();
+		}
+
+		private ByteBuffer decodeBlock() throws IOException {
+			byte[] raw = new byte[m_rawLength];
+			try {
+				long started = System.nanoTime();
+				Lz4Compressions.decompressPayload(m_decompressor, m_payloadWord, m_payload, 0,
+													raw, 0, m_rawLength);
+				Lz4Metrics.global().recordDecompress(HEADER_SIZE + m_payloadLength, m_rawLength,
+													System.nanoTime() - started);
+			}
+			catch ( LZ4Exception e ) {
+				throw new IOException("fails to decompress block: offset=" + m_offset, e);
+			}
+			m_offset += HEADER_SIZE + m_payloadLength;
+			m_payload = null;
+
+			return ByteBuffer.wrap(raw);
+		}
+	}
+}
@@ -0,0 +1,306 @@
+package utils.io;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import utils.UnitUtils;
+import utils.Utilities;
+
+/**
+ * LZ4 압축/해제 작업의 통계 정보.
+ * <p>
+ * 압축과 압축 해제 각각에 대해 처리한 블럭 수, 입력/출력 바이트 수, 그리고 소요된 시간(ns)을
+ * 누적한다. 시간은 블럭 압축/해제 연산 자체에 소요된 시간으로 입출력 대기 시간은 포함되지 않는다.
+ * <p>
+ * 모든 LZ4 압축/해제 작업의 통계는 전역 통계({@link #global()})에 누적된다. 압축/해제 스트림,
+ * 채널 등은 각자의 통계를 별도로 유지하며({@link Source}), close될 때 등록된
+ * {@link Listener}들에게 자신의 통계를 전달한다.
+ * 통계 값들은 {@link LongAdder}로 유지되므로 여러 쓰레드에서 동시에 갱신될 수 있다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+public final class Lz4Metrics {
+	private static final Logger s_logger = LoggerFactory.getLogger(Lz4Metrics.class);
+
+	private static final Lz4Metrics s_global = new Lz4Metrics(null);
+	private static final CopyOnWriteArrayList<Listener> s_listeners = new CopyOnWriteArrayList<>();
+
+	private final Lz4Metrics m_parent;
+
+	private final LongAdder m_compressBlocks = new LongAdder();
+	private final LongAdder m_compressInBytes = new LongAdder();
+	private final LongAdder m_compressOutBytes = new LongAdder();
+	private final LongAdder m_compressNanos = new LongAdder();
+
+	private final LongAdder m_decompressBlocks = new LongAdder();
+	private final LongAdder m_decompressInBytes = new LongAdder();
+	private final LongAdder m_decompressOutBytes = new LongAdder();
+	private final LongAdder m_decompressNanos = new LongAdder();
+
+	/**
+	 * LZ4 압축/해제 통계 정보를 제공하는 객체가 구현하는 인터페이스.
+	 * <p>
+	 * {@link Lz4Compressions}의 압축/해제 스트림은 반환 타입이 {@link java.io.InputStream} 등으로
+	 * 선언되어 있기 때문에, 해당 스트림의 통계는 {@link Lz4Metrics#of(Object)}로 얻는다.
+	 */
+	public interface Source {
+		public Lz4Metrics getMetrics();
+	}
+
+	/**
+	 * 스트림이나 채널이 close될 때 해당 객체의 통계 정보를 전달받는 리스너.
+	 */
+	@FunctionalInterface
+	public interface Listener {
+		/**
+		 * 압축/해제 스트림이 close되었을 때 호출된다.
+		 *
+		 * @param name	스트림 종류 이름.
+		 * @param metrics	해당 스트림의 통계 정보.
+		 */
+		public void onClosed(String name, Snapshot metrics);
+	}
+
+	/**
+	 * 모든 LZ4 압축/해제 작업의 통계가 누적되는 전역 통계 객체를 반환한다.
+	 *
+	 * @return	전역 통계 객체.
+	 */
+	public static Lz4Metrics global() {
+		return s_global;
+	}
+
+	/**
+	 * 주어진 압축/해제 스트림 또는 채널이 유지하는 통계 객체를 반환한다.
+	 *
+	 * @param stream	압축/해제 스트림 또는 채널.
+	 * @return	해당 객체의 통계 객체.
+	 * @throws IllegalArgumentException	주어진 객체가 {@link Source}가 아닌 경우.
+	 */
+	public static Lz4Metrics of(Object stream) {
+		Utilities.checkNotNullArgument(stream, "stream");
+		Utilities.checkArgument(stream instanceof Source,
+								"not a Lz4Metrics.Source: class=" + stream.getClass().getName());
+
+		return ((Source)stream).getMetrics();
+	}
+
+	public static void addListener(Listener listener) {
+		Utilities.checkNotNullArgument(listener, "Listener");
+
+		s_listeners.add(listener);
+	}
+
+	public static boolean removeListener(Listener listener) {
+		return s_listeners.remove(listener);
+	}
+
+	/**
+	 * 전역 통계에 함께 누적되는 통계 객체를 생성한다.
+	 *
+	 * @return	통계 객체.
+	 */
+	static Lz4Metrics newStreamMetrics() {
+		return new Lz4Metrics(s_global);
+	}
+
+	private Lz4Metrics(Lz4Metrics parent) {
+		m_parent = parent;
+	}
+
+	void recordCompress(long inBytes, long outBytes, long nanos) {
+		m_compressBlocks.increment();
+		m_compressInBytes.add(inBytes);
+		m_compressOutBytes.add(outBytes);
+		m_compressNanos.add(nanos);
+		if ( m_parent != null ) {
+			m_parent.recordCompress(inBytes, outBytes, nanos);
+		}
+	}
+
+	void recordDecompress(long inBytes, long outBytes, long nanos) {
+		m_decompressBlocks.increment();
+		m_decompressInBytes.add(inBytes);
+		m_decompressOutBytes.add(outBytes);
+		m_decompressNanos.add(nanos);
+		if ( m_parent != null ) {
+			m_parent.recordDecompress(inBytes, outBytes, nanos);
+		}
+	}
+
+	/**
+	 * 스트림이 close되었음을 등록된 리스너들에게 알린다.
+	 *
+	 * @param name	스트림 종류 이름.
+	 */
+	void notifyClosed(String name) {
+		Snapshot snapshot = snapshot();
+		if ( s_logger.isDebugEnabled() ) {
+			s_logger.debug("{}: {}", name, snapshot);
+		}
+		for ( Listener listener: s_listeners ) {
+			try {
+				listener.onClosed(name, snapshot);
+			}
+			catch ( Throwable e ) {
+				s_logger.warn("fails to notify Lz4Metrics listener: " + listener, e);
+			}
+		}
+	}
+
+	/**
+	 * 현재까지 누적된 통계 값을 담은 스냅샷을 반환한다.
+	 *
+	 * @return	통계 스냅샷.
+	 */
+	public Snapshot snapshot() {
+		return new Snapshot(m_compressBlocks.sum(), m_compressInBytes.sum(), m_compressOutBytes.sum(),
+							m_compressNanos.sum(), m_decompressBlocks.sum(), m_decompressInBytes.sum(),
+							m_decompressOutBytes.sum(), m_decompressNanos.sum());
+	}
+
+	/**
+	 * 누적된 통계 값들을 모두 0으로 초기화한다. 상위 통계 객체에는 영향을 주지 않는다.
+	 */
+	public void reset() {
+		m_compressBlocks.reset();
+		m_compressInBytes.reset();
+		m_compressOutBytes.reset();
+		m_compressNanos.reset();
+		m_decompressBlocks.reset();
+		m_decompressInBytes.reset();
+		m_decompressOutBytes.reset();
+		m_decompressNanos.reset();
+	}
+
+	@Override
+	public String toString() {
+		return snapshot().toString();
+	}
+
+	/**
+	 * 특정 시점의 LZ4 압축/해제 통계 값.
+	 */
+	public static final class Snapshot {
+		private final long m_compressBlocks;
+		private final long m_compressInBytes;
+		private final long m_compressOutBytes;
+		private final long m_compressNanos;
+		private final long m_decompressBlocks;
+		private final long m_decompressInBytes;
+		private final long m_decompressOutBytes;
+		private final long m_decompressNanos;
+
+		private Snapshot(long compressBlocks, long compressInBytes, long compressOutBytes,
+						long compressNanos, long decompressBlocks, long decompressInBytes,
+						long decompressOutBytes, long decompressNanos) {
+			m_compressBlocks = compressBlocks;
+			m_compressInBytes = compressInBytes;
+			m_compressOutBytes = compressOutBytes;
+			m_compressNanos = compressNanos;
+			m_decompressBlocks = decompressBlocks;
+			m_decompressInBytes = decompressInBytes;
+			m_decompressOutBytes = decompressOutBytes;
+			m_decompressNanos = decompressNanos;
+		}
+
+		public long getCompressBlocks() {
+			return m_compressBlocks;
+		}
+
+		/**
+		 * 압축 대상 원본 데이터의 누적 바이트 수를 반환한다.
+		 *
+		 * @return	바이트 수.
+		 */
+		public long getCompressInBytes() {
+			return m_compressInBytes;
+		}
+
+		/**
+		 * 압축 결과 데이터(블럭 헤더 포함)의 누적 바이트 수를 반환한다.
+		 *
+		 * @return	바이트 수.
+		 */
+		public long getCompressOutBytes() {
+			return m_compressOutBytes;
+		}
+
+		public long getCompressNanos() {
+			return m_compressNanos;
+		}
+
+		public long getDecompressBlocks() {
+			return m_decompressBlocks;
+		}
+
+		/**
+		 * 압축 해제 대상 압축 데이터(블럭 헤더 포함)의 누적 바이트 수를 반환한다.
+		 *
+		 * @return	바이트 수.
+		 */
+		public long getDecompressInBytes() {
+			return m_decompressInBytes;
+		}
+
+		/**
+		 * 압축 해제된 데이터의 누적 바이트 수를 반환한다.
+		 *
+		 * @return	바이트 수.
+		 */
+		public long getDecompressOutBytes() {
+			return m_decompressOutBytes;
+		}
+
+		public long getDecompressNanos() {
+			return m_decompressNanos;
+		}
+
+		/**
+		 * 압축률(압축 결과 크기 / 원본 크기)을 반환한다.
+		 *
+		 * @return	압축률. 압축된 데이터가 없는 경우는 0.
+		 */
+		public double getCompressRatio() {
+			return (m_compressInBytes > 0) ? (double)m_compressOutBytes / m_compressInBytes : 0;
+		}
+
+		/**
+		 * 압축 처리량(초당 처리한 원본 데이터 바이트 수)을 반환한다.
+		 *
+		 * @return	초당 바이트 수.
+		 */
+		public double getCompressThroughput() {
+			return throughput(m_compressInBytes, m_compressNanos);
+		}
+
+		/**
+		 * 압축 해제 처리량(초당 생성한 압축 해제 데이터 바이트 수)을 반환한다.
+		 *
+		 * @return	초당 바이트 수.
+		 */
+		public double getDecompressThroughput() {
+			return throughput(m_decompressOutBytes, m_decompressNanos);
+		}
+
+		private static double throughput(long bytes, long nanos) {
+			return (nanos > 0) ? bytes * (double)TimeUnit.SECONDS.toNanos(1) / nanos : 0;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("compress[blocks=%d, %s -> %s, ratio=%.1f%%, %s/s], "
+								+ "decompress[blocks=%d, %s -> %s, %s/s]",
+								m_compressBlocks, UnitUtils.toByteSizeString(m_compressInBytes),
+								UnitUtils.toByteSizeString(m_compressOutBytes), getCompressRatio() * 100,
+								UnitUtils.toByteSizeString((long)getCompressThroughput()),
+								m_decompressBlocks, UnitUtils.toByteSizeString(m_decompressInBytes),
+								UnitUtils.toByteSizeString(m_decompressOutBytes),
+								UnitUtils.toByteSizeString((long)getDecompressThroughput()));
+		}
+	}
+}
@@ -0,0 +1,241 @@
+package utils.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
+import utils.Utilities;
+
+/**
+ * 입력 스트림을 블럭 단위로 미리 읽어 여러 쓰레드에서 병렬로 압축하는 스트림.
+ * <p>
+ * 각 블럭은 읽은 순서대로 출력되며, 블럭 인코딩은 {@link Lz4BlockEncoder}를 사용하기 때문에
+ * 동일한 {@link Lz4CompressOptions}에 대해 {@link Lz4Compressions#compress(InputStream, Lz4CompressOptions)}와
+ * 동일한 결과를 생성한다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+class Lz4ParallelCompressedInputStream extends InputStream implements Lz4Metrics.Source {
+	private final InputStream m_src;
+	private final Lz4BlockEncoder m_encoder;
+	private final Executor m_executor;
+	private final boolean m_ownExecutor;
+	private final int m_queueDepth;
+
+	private final Deque<CompletableFuture<Block>> m_pendings;
+	private final Deque<Block> m_freeBlocks;
+	private int m_allocated = 0;
+	private boolean m_srcEOF = false;
+	private boolean m_trailerEmitted = false;
+
+	private Block m_current = null;
+	private byte[] m_output = null;		// 현재 출력 중인 블럭 또는 색인 트레일러
+	private int m_remains = 0;
+	private int m_offset = 0;
+
+	private final Lz4Metrics m_metrics = Lz4Metrics.newStreamMetrics();
+	private boolean m_closed = false;
+
+	Lz4ParallelCompressedInputStream(InputStream src, Lz4CompressOptions opts, Executor executor,
+									boolean ownExecutor, int queueDepth) {
+		Utilities.checkNotNullArgument(src, "Source InputStream");
+		Utilities.checkNotNullArgument(opts, "Lz4CompressOptions");
+		Utilities.checkArgument(queueDepth > 0, "invalid queue-depth: " + queueDepth);
+
+		m_src = src;
+		m_encoder = new Lz4BlockEncoder(opts, m_metrics);
+		m_executor = executor;
+		m_ownExecutor = ownExecutor;
+		m_queueDepth = queueDepth;
+
+		m_pendings = new ArrayDeque<>(queueDepth);
+		m_freeBlocks = new ArrayDeque<>(queueDepth);
+	}
+
+	@Override
+	public int read() throws IOException {
+		if ( m_remains < 0 ) {
+			return -1;
+		}
+		else if ( m_remains == 0 ) {
+			if ( nextBlock() < 0 ) {
+				return -1;
+			}
+		}
+
+		--m_remains;
+		return m_output[m_offset++] & 0xFF;
+	}
+
+	@Override
+    public int read(byte b[], int off, int len) throws IOException {
+		if ( m_remains < 0 ) {
+			return -1;
+		}
+		else if ( m_remains == 0 ) {
+			if ( nextBlock() < 0 ) {
+				return -1;
+			}
+		}
+
+		int nbytes = Math.min(m_remains, len);
+		System.arraycopy(m_output, m_offset, b, off, nbytes);
+		m_offset += nbytes;
+		m_remains -= nbytes;
+
+		return nbytes;
+    }
+
+	@Override
+    public int available() throws IOException {
+        return Math.max(m_remains, 0);
+    }
+
+	@Override
+    public void close() throws IOException {
+		if ( m_closed ) {
+			return;
+		}
+		m_closed = true;
+		m_remains = -1;
+
+		// CompletableFuture는 취소되어도 이미 실행 중인 작업을 중단시키지 않기 때문에,
+		// 작업 중인 블럭 버퍼를 해제하기 전에 진행 중인 압축 작업들이 모두 끝나기를 기다린다.
+		for ( CompletableFuture<Block> pending: m_pendings ) {
+			try {
+				pending.join();
+			}
+			catch ( CompletionException | CancellationException ignored ) { }
+		}
+		m_pendings.clear();
+		m_freeBlocks.clear();
+		m_current = null;
+		m_output = null;
+
+		try {
+			m_src.close();
+		}
+		finally {
+			if ( m_ownExecutor ) {
+				((ExecutorService)m_executor).shutdown();
+			}
+			m_metrics.notifyClosed(getClass().getSimpleName());
+		}
+	}
+
+	@Override
+	public Lz4Metrics getMetrics() {
+		return m_metrics;
+	}
+
+	@Override
+	public String toString() {
+		Lz4Metrics.Snapshot snapshot = m_metrics.snapshot();
+		return String.format("block[%d]=%d:%d, %d -> %d (pending=%d)", snapshot.getCompressBlocks(),
+								m_offset+m_remains, m_offset, snapshot.getCompressInBytes(),
+								snapshot.getCompressOutBytes(), m_pendings.size());
+	}
+
+	private int nextBlock() throws IOException {
+		if ( m_current != null ) {
+			m_freeBlocks.add(m_current);
+			m_current = null;
+		}
+
+		fillPendings();
+
+		CompletableFuture<Block> head = m_pendings.poll();
+		if ( head == null ) {
+			return emitIndexTrailer();
+		}
+
+		try {
+			m_current = head.get();
+		}
+		catch ( InterruptedException e ) {
+			throw new InterruptedIOException("interrupted while compressing a block");
+		}
+		catch ( CancellationException e ) {
+			throw new IOException("block compression has been cancelled");
+		}
+		catch ( ExecutionException e ) {
+			Throwable cause = e.getCause();
+			if ( cause instanceof IOException ) {
+				throw (IOException)cause;
+			}
+			throw new IOException("fails to compress a block", cause);
+		}
+
+		m_output = m_current.m_compressed;
+		m_offset = 0;
+		return m_remains = m_encoder.commit(m_current.m_raw, 0, m_current.m_rawLength,
+											m_current.m_compressed, 0);
+	}
+
+	private int emitIndexTrailer() {
+		ByteBuffer trailer = !m_trailerEmitted ? m_encoder.getIndexTrailer() : null;
+		m_trailerEmitted = true;
+		m_output = null;
+		if ( trailer == null ) {
+			return m_remains = -1;
+		}
+
+		m_output = new byte[trailer.remaining()];
+		trailer.get(m_output);
+		m_offset = 0;
+		return m_remains = m_output.length;
+	}
+
+	private void fillPendings() throws IOException {
+		while ( !m_srcEOF && m_pendings.size() < m_queueDepth ) {
+			Block block = m_freeBlocks.poll();
+			if ( block == null ) {
+				if ( m_allocated >= m_queueDepth + 1 ) {
+					return;
+				}
+				block = new Block();
+				++m_allocated;
+			}
+
+			int nread = Lz4Compressions.readBlock(m_src, block.m_raw);
+			if ( nread == -1 ) {
+				m_srcEOF = true;
+				m_freeBlocks.add(block);
+				return;
+			}
+
+			final Block target = block;
+			final int rawLength = nread;
+			m_pendings.add(CompletableFuture.supplyAsync(() -> target.compress(rawLength), m_executor));
+		}
+	}
+
+	private final class Block {
+		private final byte[] m_raw;
+		private final byte[] m_compressed;
+		private int m_rawLength;
+
+		Block() {
+			m_raw = new byte[m_encoder.getBlockSize()];
+			m_compressed = new byte[m_encoder.getMaxEncodedLength()];
+		}
+
+		// 압축 생략 여부는 앞 블럭들의 결과에 따라 출력 순서대로 결정되기 때문에
+		// 여기서는 항상 압축을 시도하고, 최종 결정은 Lz4BlockEncoder.commit()에서 한다.
+		Block compress(int rawLength) {
+			m_rawLength = rawLength;
+			m_encoder.encodeBlock(m_raw, 0, rawLength, m_compressed, 0, true);
+
+			return this;
+		}
+	}
+}
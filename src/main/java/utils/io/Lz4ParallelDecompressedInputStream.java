@@ -0,0 +1,241 @@
+package utils.io;
+
+import static utils.io.Lz4Compressions.HEADER_SIZE;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
+import net.jpountz.lz4.LZ4FastDecompressor;
+import utils.Utilities;
+
+/**
+ * {@link Lz4Compressions#compress(InputStream)} 형식의 압축 스트림에서 블럭들을 미리 읽어
+ * 여러 쓰레드에서 병렬로 압축을 해제하는 스트림.
+ * <p>
+ * 압축 해제된 블럭들은 원래 순서대로 출력된다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+class Lz4ParallelDecompressedInputStream extends InputStream implements Lz4Metrics.Source {
+	private final InputStream m_src;
+	private final Executor m_executor;
+	private final boolean m_ownExecutor;
+	private final int m_queueDepth;
+	private final LZ4FastDecompressor m_decompressor;
+
+	private final byte[] m_header = new byte[HEADER_SIZE];
+	private final Deque<CompletableFuture<Block>> m_pendings;
+	private final Deque<Block> m_freeBlocks;
+	private boolean m_srcEOF = false;
+
+	private Block m_current = null;
+	private int m_remains = 0;
+	private int m_offset = 0;
+
+	private final Lz4Metrics m_metrics = Lz4Metrics.newStreamMetrics();
+	private boolean m_closed = false;
+
+	Lz4ParallelDecompressedInputStream(InputStream compressedStream, Executor executor,
+										boolean ownExecutor, int queueDepth) {
+		Utilities.checkNotNullArgument(compressedStream, "Lz4Compressed InputStream");
+		Utilities.checkArgument(queueDepth > 0, "invalid queue-depth: " + queueDepth);
+
+		m_src = compressedStream;
+		m_executor = executor;
+		m_ownExecutor = ownExecutor;
+		m_queueDepth = queueDepth;
+		m_decompressor = Lz4Compressions.s_fact.get().fastDecompressor();
+
+		m_pendings = new ArrayDeque<>(queueDepth);
+		m_freeBlocks = new ArrayDeque<>(queueDepth);
+	}
+
+	@Override
+	public int read() throws IOException {
+		if ( m_remains < 0 ) {
+			return -1;
+		}
+		else if ( m_remains == 0 ) {
+			if ( nextBlock() < 0 ) {
+				return -1;
+			}
+		}
+
+		--m_remains;
+		return m_current.m_buffer[m_offset++] & 0xFF;
+	}
+
+	@Override
+    public int read(byte b[], int off, int len) throws IOException {
+		if ( m_remains < 0 ) {
+			return -1;
+		}
+		else if ( m_remains == 0 ) {
+			if ( nextBlock() < 0 ) {
+				return -1;
+			}
+		}
+
+		int nbytes = Math.min(m_remains, len);
+		System.arraycopy(m_current.m_buffer, m_offset, b, off, nbytes);
+		m_offset += nbytes;
+		m_remains -= nbytes;
+
+		return nbytes;
+    }
+
+	@Override
+    public int available() throws IOException {
+        return Math.max(m_remains, 0);
+    }
+
+	@Override
+    public void close() throws IOException {
+		if ( m_closed ) {
+			return;
+		}
+		m_closed = true;
+		m_remains = -1;
+
+		// 이미 실행 중인 압축 해제 작업은 취소되지 않기 때문에 모두 끝나기를 기다린다.
+		for ( CompletableFuture<Block> pending: m_pendings ) {
+			try {
+				pending.join();
+			}
+			catch ( CompletionException | CancellationException ignored ) { }
+		}
+		m_pendings.clear();
+		m_freeBlocks.clear();
+		m_current = null;
+
+		try {
+			m_src.close();
+		}
+		finally {
+			if ( m_ownExecutor ) {
+				((ExecutorService)m_executor).shutdown();
+			}
+			m_metrics.notifyClosed(getClass().getSimpleName());
+		}
+	}
+
+	@Override
+	public Lz4Metrics getMetrics() {
+		return m_metrics;
+	}
+
+	@Override
+	public String toString() {
+		Lz4Metrics.Snapshot snapshot = m_metrics.snapshot();
+		return String.format("block[%d]=%d:%d, %d -> %d (pending=%d)", snapshot.getDecompressBlocks(),
+								m_offset+m_remains, m_offset, snapshot.getDecompressInBytes(),
+								snapshot.getDecompressOutBytes(), m_pendings.size());
+	}
+
+	private int nextBlock() throws IOException {
+		while ( true ) {
+			if ( m_current != null ) {
+				m_freeBlocks.add(m_current);
+				m_current = null;
+			}
+
+			fillPendings();
+
+			CompletableFuture<Block> head = m_pendings.poll();
+			if ( head == null ) {
+				return m_remains = -1;
+			}
+
+			try {
+				m_current = head.get();
+			}
+			catch ( InterruptedException e ) {
+				throw new InterruptedIOException("interrupted while decompressing a block");
+			}
+			catch ( CancellationException e ) {
+				throw new IOException("block decompression has been cancelled");
+			}
+			catch ( ExecutionException e ) {
+				throw new IOException("fails to decompress a block", e.getCause());
+			}
+
+			// 길이가 0인 블럭은 건너뛴다.
+			if ( m_current.m_length > 0 ) {
+				m_offset = 0;
+				return m_remains = m_current.m_length;
+			}
+		}
+	}
+
+	private void fillPendings() throws IOException {
+		while ( !m_srcEOF && m_pendings.size() < m_queueDepth ) {
+			try {
+				IOUtils.readFully(m_src, m_header, 0, HEADER_SIZE);
+			}
+			catch ( EOFException e ) {
+				m_srcEOF = true;
+				return;
+			}
+			ByteBuffer headerBuf = ByteBuffer.wrap(m_header);
+			int len = headerBuf.getInt();
+			int compressedLen = headerBuf.getInt();
+			if ( len == Lz4BlockIndex.INDEX_MARK ) {
+				m_srcEOF = true;
+				return;
+			}
+			len = Lz4Compressions.getBlockLength(len);
+			int payloadWord = compressedLen;
+			compressedLen = Lz4Compressions.getBlockLength(compressedLen);
+
+			Block block = m_freeBlocks.poll();
+			if ( block == null ) {
+				block = new Block();
+			}
+			block.prepare(len, compressedLen, payloadWord);
+			IOUtils.readFully(m_src, block.m_compressed, 0, compressedLen);
+
+			final Block target = block;
+			m_pendings.add(CompletableFuture.supplyAsync(target::decompress, m_executor));
+		}
+	}
+
+	private final class Block {
+		private byte[] m_compressed = new byte[0];
+		private byte[] m_buffer = new byte[0];
+		private int m_length;
+		private int m_compressedLength;
+		private int m_payloadWord;
+
+		void prepare(int length, int compressedLength, int payloadWord) {
+			if ( m_buffer.length < length ) {
+				m_buffer = new byte[length];
+			}
+			if ( m_compressed.length < compressedLength ) {
+				m_compressed = new byte[compressedLength];
+			}
+			m_length = length;
+			m_compressedLength = compressedLength;
+			m_payloadWord = payloadWord;
+		}
+
+		Block decompress() {
+			long started = System.nanoTime();
+			Lz4Compressions.decompressPayload(m_decompressor, m_payloadWord, m_compressed, 0,
+												m_buffer, 0, m_length);
+			m_metrics.recordDecompress(HEADER_SIZE + m_compressedLength, m_length,
+										System.nanoTime() - started);
+			return this;
+		}
+	}
+}
@@ -0,0 +1,168 @@
+package utils.io;
+
+import static utils.io.Lz4Compressions.HEADER_SIZE;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import net.jpountz.lz4.LZ4FastDecompressor;
+import utils.Utilities;
+
+/**
+ * {@link Lz4Compressions} 블럭 형식으로 압축된 파일의 임의 위치를 읽는 reader.
+ * <p>
+ * 파일의 블럭 색인({@link Lz4BlockIndex})을 이용하여 요청된 범위를 포함하는 블럭들만
+ * 압축 해제한다. 연속된 작은 읽기를 위해 가장 최근에 압축 해제된 블럭을 유지한다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+public class Lz4RandomAccessReader implements Closeable, Lz4Metrics.Source {
+	private final FileChannel m_channel;
+	private final Lz4BlockIndex m_index;
+	private final LZ4FastDecompressor m_decompressor;
+	private final Lz4Metrics m_metrics = Lz4Metrics.newStreamMetrics();
+
+	private ByteBuffer m_compressed = ByteBuffer.allocate(0);
+	private byte[] m_block = new byte[0];
+	private int m_blockIdx = -1;
+
+	public static Lz4RandomAccessReader open(File file) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			return new Lz4RandomAccessReader(channel);
+		}
+		catch ( IOException e ) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * 주어진 파일 채널에 대한 reader를 생성한다.
+	 * <p>
+	 * 생성된 reader가 close될 때 주어진 채널도 함께 close된다.
+	 *
+	 * @param channel	압축 데이터 파일 채널.
+	 */
+	public Lz4RandomAccessReader(FileChannel channel) throws IOException {
+		Utilities.checkNotNullArgument(channel, "FileChannel");
+
+		m_channel = channel;
+		m_index = Lz4BlockIndex.of(channel);
+		m_decompressor = Lz4Compressions.s_fact.get().fastDecompressor();
+	}
+
+	public Lz4BlockIndex getIndex() {
+		return m_index;
+	}
+
+	/**
+	 * 압축 해제된 데이터의 전체 크기를 반환한다.
+	 *
+	 * @return	데이터 크기.
+	 */
+	public long length() {
+		return m_index.getRawLength();
+	}
+
+	@Override
+	public Lz4Metrics getMetrics() {
+		return m_metrics;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if ( m_channel.isOpen() ) {
+			m_metrics.notifyClosed(getClass().getSimpleName());
+		}
+		m_channel.close();
+	}
+
+	/**
+	 * 압축 해제된 데이터의 주어진 위치부터 최대 {@code len} 바이트를 읽는다.
+	 *
+	 * @param position	압축 해제된 데이터에서의 읽기 시작 위치.
+	 * @param buf	읽은 데이터를 저장할 버퍼.
+	 * @param off	버퍼 내 저장 시작 위치.
+	 * @param len	읽을 최대 바이트 수.
+	 * @return	읽은 바이트 수. 주어진 위치가 데이터의 끝 이후인 경우는 -1.
+	 */
+	public synchronized int read(long position, byte[] buf, int off, int len) throws IOException {
+		Utilities.checkArgument(position >= 0, "invalid position: " + position);
+		Utilities.checkArgument(off >= 0 && len >= 0 && off + len <= buf.length,
+								"invalid range: off=" + off + ", len=" + len);
+
+		if ( position >= length() ) {
+			return -1;
+		}
+
+		int total = 0;
+		while ( total < len && position < length() ) {
+			int blockIdx = m_index.findBlock(position);
+			loadBlock(blockIdx);
+
+			int blockOffset = (int)(position - m_index.getBlockRawOffset(blockIdx));
+			int nbytes = Math.min(len - total, m_index.getBlockRawLength(blockIdx) - blockOffset);
+			System.arraycopy(m_block, blockOffset, buf, off + total, nbytes);
+
+			total += nbytes;
+			position += nbytes;
+		}
+
+		return total;
+	}
+
+	/**
+	 * 압축 해제된 데이터의 주어진 범위를 읽는다.
+	 * <p>
+	 * 데이터의 끝을 넘어서는 범위가 주어진 경우는 데이터 끝까지만 읽는다.
+	 *
+	 * @param position	압축 해제된 데이터에서의 읽기 시작 위치.
+	 * @param length	읽을 바이트 수.
+	 * @return	읽은 데이터.
+	 */
+	public byte[] read(long position, int length) throws IOException {
+		Utilities.checkArgument(length >= 0, "invalid length: " + length);
+
+		long available = Math.max(length() - position, 0);
+		byte[] buf = new byte[(int)Math.min(length, available)];
+		if ( buf.length > 0 ) {
+			read(position, buf, 0, buf.length);
+		}
+
+		return buf;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s[%s]", getClass().getSimpleName(), m_index);
+	}
+
+	private void loadBlock(int blockIdx) throws IOException {
+		if ( m_blockIdx == blockIdx ) {
+			return;
+		}
+
+		int len = m_index.getBlockRawLength(blockIdx);
+		int compressedLen = m_index.getBlockCompressedLength(blockIdx);
+		if ( m_compressed.capacity() < compressedLen ) {
+			m_compressed = ByteBuffer.allocate(compressedLen);
+		}
+		if ( m_block.length < len ) {
+			m_block = new byte[len];
+		}
+
+		m_blockIdx = -1;
+		m_compressed.clear().limit(compressedLen);
+		Lz4BlockIndex.readFully(m_channel, m_index.getBlockOffset(blockIdx) + HEADER_SIZE, m_compressed);
+		long started = System.nanoTime();
+		Lz4Compressions.decompressPayload(m_decompressor, m_index.getBlockCompressedLengthWord(blockIdx),
+											m_compressed.array(), 0, m_block, 0, len);
+		m_metrics.recordDecompress(HEADER_SIZE + compressedLen, len, System.nanoTime() - started);
+		m_blockIdx = blockIdx;
+	}
+}
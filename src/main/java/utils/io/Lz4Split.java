@@ -0,0 +1,246 @@
+package utils.io;
+
+import static utils.io.Lz4Compressions.HEADER_SIZE;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import utils.Utilities;
+
+/**
+ * {@link Lz4Compressions} 블럭 형식으로 압축된 파일에서 연속된 블럭들로 구성된 구간.
+ * <p>
+ * 구간은 블럭 경계에서 시작하고 끝나므로 다른 구간과 무관하게 독립적으로 압축 해제할 수 있다.
+ * 구간들은 {@link Lz4BlockIndex#split(int)}로 생성하며, 하나의 압축 파일을 여러 쓰레드에서
+ * 나누어 처리하는 데 사용된다. 구간의 데이터는 {@link FileChannel}의 위치 지정 읽기로만
+ * 접근하므로 여러 구간이 하나의 채널을 동시에 사용할 수 있다.
+ * <pre>
+ * Lz4BlockIndex index = Lz4BlockIndex.of(channel);
+ * index.split(1).get(0).blocks(channel).parallel().forEach(...);
+ * </pre>
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+public final class Lz4Split {
+	private final Lz4BlockIndex m_index;
+	private final int m_firstBlock;
+	private final int m_lastBlock;		// exclusive
+
+	Lz4Split(Lz4BlockIndex index, int firstBlock, int lastBlock) {
+		Utilities.checkArgument(firstBlock >= 0 && firstBlock <= lastBlock
+								&& lastBlock <= index.getBlockCount(),
+								"invalid block range: [" + firstBlock + ", " + lastBlock + ")");
+
+		m_index = index;
+		m_firstBlock = firstBlock;
+		m_lastBlock = lastBlock;
+	}
+
+	public int getFirstBlock() {
+		return m_firstBlock;
+	}
+
+	public int getBlockCount() {
+		return m_lastBlock - m_firstBlock;
+	}
+
+	/**
+	 * 구간의 압축 파일 내 시작 위치를 반환한다.
+	 *
+	 * @return	첫번째 블럭 헤더의 위치.
+	 */
+	public long getStartOffset() {
+		return m_index.getBlockOffset(m_firstBlock);
+	}
+
+	/**
+	 * 구간의 압축 파일 내 끝 위치(exclusive)를 반환한다.
+	 *
+	 * @return	마지막 블럭 다음 위치.
+	 */
+	public long getEndOffset() {
+		return m_index.getBlockOffset(m_lastBlock);
+	}
+
+	/**
+	 * 구간에 해당하는 데이터의 압축 해제된 데이터 내 시작 위치를 반환한다.
+	 *
+	 * @return	압축 해제된 데이터에서의 시작 위치.
+	 */
+	public long getRawOffset() {
+		return m_index.getBlockRawOffset(m_firstBlock);
+	}
+
+	public long getRawLength() {
+		return m_index.getBlockRawOffset(m_lastBlock) - getRawOffset();
+	}
+
+	/**
+	 * 구간의 데이터를 압축 해제하여 읽는 입력 스트림을 생성한다.
+	 * <p>
+	 * 생성된 스트림이 close되어도 주어진 채널은 close되지 않는다.
+	 *
+	 * @param channel	압축 파일 채널.
+	 * @return	압축 해제된 데이터 입력 스트림.
+	 */
+	public InputStream open(FileChannel channel) {
+		Utilities.checkNotNullArgument(channel, "FileChannel");
+
+		return Lz4Compressions.decompress(new RangeInputStream(channel, getStartOffset(), getEndOffset()));
+	}
+
+	/**
+	 * 구간의 블럭들을 차례대로 압축 해제하는 스트림을 생성한다.
+	 * <p>
+	 * 스트림의 각 원소는 하나의 블럭을 압축 해제한 데이터이며, 블럭 순서를 유지한다.
+	 * {@link Stream#parallel()}로 병렬 스트림으로 변환하면 블럭 구간이 반씩 나뉘어
+	 * 여러 쓰레드에서 압축 해제된다. 읽기 오류는 {@link UncheckedIOException}으로 전달된다.
+	 *
+	 * @param channel	압축 파일 채널.
+	 * @return	압축 해제된 블럭 스트림.
+	 */
+	public Stream<ByteBuffer> blocks(FileChannel channel) {
+		Utilities.checkNotNullArgument(channel, "FileChannel");
+
+		return StreamSupport.stream(new BlockSpliterator(channel, m_index, m_firstBlock, m_lastBlock), false);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Lz4Split[blocks=[%d, %d), offset=[%d, %d), raw=%d:%d]",
+								m_firstBlock, m_lastBlock, getStartOffset(), getEndOffset(),
+								getRawOffset(), getRawLength());
+	}
+
+	/**
+	 * 블럭 구간을 반씩 나누어 병렬로 처리할 수 있는 {@link Spliterator}.
+	 */
+	private static final class BlockSpliterator implements Spliterator<ByteBuffer> {
+		private final FileChannel m_channel;
+		private final Lz4BlockIndex m_index;
+		private int m_current;
+		private final int m_end;
+		private LZ4FastDecompressor m_decompressor;
+
+		BlockSpliterator(FileChannel channel, Lz4BlockIndex index, int first, int end) {
+			m_channel = channel;
+			m_index = index;
+			m_current = first;
+			m_end = end;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super ByteBuffer> action) {
+			if ( m_current >= m_end ) {
+				return false;
+			}
+
+			action.accept(decodeBlock(m_current++));
+			return true;
+		}
+
+		@Override
+		public Spliterator<ByteBuffer> trySplit() {
+			int mid = (m_current + m_end) >>> 1;
+			if ( mid <= m_current ) {
+				return null;
+			}
+
+			BlockSpliterator prefix = new BlockSpliterator(m_channel, m_index, m_current, mid);
+			m_current = mid;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return m_end - m_current;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+		}
+
+		private ByteBuffer decodeBlock(int blockIdx) {
+			if ( m_decompressor == null ) {
+				m_decompressor = Lz4Compressions.s_fact.get().fastDecompressor();
+			}
+
+			int len = m_index.getBlockRawLength(blockIdx);
+			int compressedLen = m_index.getBlockCompressedLength(blockIdx);
+			ByteBuffer compressed = ByteBuffer.allocate(compressedLen);
+			byte[] raw = new byte[len];
+			try {
+				Lz4BlockIndex.readFully(m_channel, m_index.getBlockOffset(blockIdx) + HEADER_SIZE, compressed);
+
+				long started = System.nanoTime();
+				Lz4Compressions.decompressPayload(m_decompressor,
+												m_index.getBlockCompressedLengthWord(blockIdx),
+												compressed.array(), 0, raw, 0, len);
+				Lz4Metrics.global().recordDecompress(HEADER_SIZE + compressedLen, len,
+													System.nanoTime() - started);
+			}
+			catch ( IOException e ) {
+				throw new UncheckedIOException(e);
+			}
+			catch ( LZ4Exception e ) {
+				throw new UncheckedIOException(new IOException("fails to decompress block: index="
+																+ blockIdx, e));
+			}
+
+			return ByteBuffer.wrap(raw);
+		}
+	}
+
+	/**
+	 * 파일 채널의 주어진 범위를 위치 지정 읽기로 읽는 입력 스트림.
+	 */
+	private static final class RangeInputStream extends InputStream {
+		private final FileChannel m_channel;
+		private long m_pos;
+		private final long m_end;
+
+		RangeInputStream(FileChannel channel, long start, long end) {
+			m_channel = channel;
+			m_pos = start;
+			m_end = end;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] buf = new byte[1];
+			return (read(buf, 0, 1) < 0) ? -1 : buf[0] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if ( len == 0 ) {
+				return 0;
+			}
+			if ( m_pos >= m_end ) {
+				return -1;
+			}
+
+			int nbytes = (int)Math.min(len, m_end - m_pos);
+			int nread = m_channel.read(ByteBuffer.wrap(b, off, nbytes), m_pos);
+			if ( nread > 0 ) {
+				m_pos += nread;
+			}
+			return nread;
+		}
+
+		@Override
+		public int available() {
+			return (int)Math.min(m_end - m_pos, Integer.MAX_VALUE);
+		}
+	}
+}
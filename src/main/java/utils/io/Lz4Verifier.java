@@ -0,0 +1,252 @@
+package utils.io;
+
+import static utils.io.Lz4Compressions.HEADER_SIZE;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+import utils.Utilities;
+
+/**
+ * {@link Lz4Compressions} 블럭 형식으로 압축된 파일의 무결성을 검사한다.
+ * <p>
+ * 파일은 블럭 색인({@link Lz4BlockIndex})을 기준으로 여러 구간으로 나뉘어 병렬로 검사되며,
+ * 압축 해제된 데이터는 생성되지 않는다. 각 블럭은 다음과 같이 검사된다.
+ * <ul>
+ * 	<li>블럭 헤더가 색인 정보와 일치하는지 검사한다.
+ * 	<li>체크섬이 기록된 블럭은 체크섬만 검사한다.
+ * 	<li>체크섬이 없는 압축 블럭은 압축 해제가 가능한지를 재사용되는 임시 버퍼를 이용하여 검사한다.
+ * </ul>
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+public final class Lz4Verifier {
+	private static final long SEGMENT_SIZE = 64L * 1024 * 1024;
+	private static final ThreadLocal<byte[]> s_scratch = new ThreadLocal<>();
+
+	private Lz4Verifier() {
+		throw new AssertionError("Should not be called: class=" + Lz4Verifier.class.getName());
+	}
+
+	/**
+	 * 주어진 압축 파일을 {@link ForkJoinPool#commonPool()}을 이용하여 병렬로 검사한다.
+	 *
+	 * @param file	압축 파일.
+	 * @return	검사 결과.
+	 */
+	public static Result verify(File file) throws IOException {
+		try ( FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ) ) {
+			return verify(channel, ForkJoinPool.commonPool());
+		}
+	}
+
+	/**
+	 * 주어진 압축 파일을 주어진 수의 쓰레드를 이용하여 병렬로 검사한다.
+	 *
+	 * @param file	압축 파일.
+	 * @param nworkers	검사에 사용할 쓰레드 수.
+	 * @return	검사 결과.
+	 */
+	public static Result verify(File file, int nworkers) throws IOException {
+		Utilities.checkArgument(nworkers > 0, "invalid worker count: " + nworkers);
+
+		ExecutorService executor = new ForkJoinPool(nworkers);
+		try ( FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ) ) {
+			return verify(channel, executor);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * 주어진 파일 채널의 압축 데이터를 주어진 executor를 이용하여 병렬로 검사한다.
+	 * <p>
+	 * 블럭 구조 자체가 손상되어 블럭 색인을 생성할 수 없는 경우는 {@link IOException}이
+	 * 발생하며, 개별 블럭의 손상은 결과 객체에 기록된다.
+	 *
+	 * @param channel	압축 데이터 파일 채널.
+	 * @param executor	검사를 수행할 executor.
+	 * @return	검사 결과.
+	 */
+	public static Result verify(FileChannel channel, Executor executor) throws IOException {
+		Utilities.checkNotNullArgument(channel, "FileChannel");
+		Utilities.checkNotNullArgument(executor, "Executor");
+
+		Lz4BlockIndex index = Lz4BlockIndex.of(channel);
+
+		List<CompletableFuture<int[]>> segments = new ArrayList<>();
+		int start = 0;
+		while ( start < index.getBlockCount() ) {
+			int end = start + 1;
+			while ( end < index.getBlockCount()
+					&& index.getBlockOffset(end+1) - index.getBlockOffset(start) <= SEGMENT_SIZE ) {
+				++end;
+			}
+
+			final int first = start;
+			final int last = end;
+			segments.add(CompletableFuture.supplyAsync(() -> verifySegment(channel, index, first, last),
+														executor));
+			start = end;
+		}
+
+		int checksummed = 0;
+		for ( int i =0; i < index.getBlockCount(); ++i ) {
+			if ( index.hasBlockChecksum(i) ) {
+				++checksummed;
+			}
+		}
+
+		List<Integer> corrupteds = new ArrayList<>();
+		try {
+			for ( CompletableFuture<int[]> segment: segments ) {
+				for ( int blockIdx: segment.get() ) {
+					corrupteds.add(blockIdx);
+				}
+			}
+		}
+		catch ( InterruptedException e ) {
+			segments.forEach(f -> f.cancel(true));
+			throw new InterruptedIOException("interrupted while verifying blocks");
+		}
+		catch ( ExecutionException e ) {
+			Throwable cause = e.getCause();
+			if ( cause instanceof UncheckedIOException ) {
+				cause = cause.getCause();
+			}
+			if ( cause instanceof IOException ) {
+				throw (IOException)cause;
+			}
+			throw new IOException("fails to verify blocks", cause);
+		}
+
+		return new Result(index, checksummed, corrupteds.stream().mapToInt(v -> v).toArray());
+	}
+
+	// [first, last) 구간의 블럭들을 검사하고, 손상된 블럭들의 번호를 반환한다.
+	private static int[] verifySegment(FileChannel channel, Lz4BlockIndex index, int first, int last) {
+		long base = index.getBlockOffset(first);
+		MappedByteBuffer mapped;
+		try {
+			mapped = channel.map(MapMode.READ_ONLY, base, index.getBlockOffset(last) - base);
+		}
+		catch ( IOException e ) {
+			throw new UncheckedIOException(e);
+		}
+
+		LZ4SafeDecompressor decompressor = Lz4Compressions.s_fact.get().safeDecompressor();
+		int[] corrupteds = new int[0];
+		for ( int blockIdx = first; blockIdx < last; ++blockIdx ) {
+			int off = (int)(index.getBlockOffset(blockIdx) - base);
+			if ( !verifyBlock(mapped, off, index, blockIdx, decompressor) ) {
+				corrupteds = Arrays.copyOf(corrupteds, corrupteds.length + 1);
+				corrupteds[corrupteds.length-1] = blockIdx;
+			}
+		}
+
+		return corrupteds;
+	}
+
+	private static boolean verifyBlock(ByteBuffer mapped, int off, Lz4BlockIndex index, int blockIdx,
+										LZ4SafeDecompressor decompressor) {
+		int len = index.getBlockRawLength(blockIdx);
+		int payloadWord = index.getBlockCompressedLengthWord(blockIdx);
+		if ( Lz4Compressions.getBlockLength(Lz4Compressions.getIntBE(mapped, off)) != len
+			|| Lz4Compressions.getIntBE(mapped, off + 4) != payloadWord ) {
+			return false;
+		}
+
+		try {
+			if ( Lz4Compressions.hasChecksum(payloadWord) ) {
+				Lz4Compressions.verifyChecksum(payloadWord, mapped, off + HEADER_SIZE);
+				return true;
+			}
+			else if ( Lz4Compressions.isStoredBlock(payloadWord) ) {
+				return true;
+			}
+
+			byte[] scratch = s_scratch.get();
+			if ( scratch == null || scratch.length < len ) {
+				scratch = new byte[len];
+				s_scratch.set(scratch);
+			}
+			int compressedLen = Lz4Compressions.getBlockLength(payloadWord);
+			int nbytes = decompressor.decompress(mapped, off + HEADER_SIZE, compressedLen,
+												ByteBuffer.wrap(scratch), 0, len);
+			return nbytes == len;
+		}
+		catch ( LZ4Exception | IndexOutOfBoundsException e ) {
+			return false;
+		}
+	}
+
+	/**
+	 * 압축 파일의 무결성 검사 결과.
+	 */
+	public static final class Result {
+		private final Lz4BlockIndex m_index;
+		private final int m_checksummedCount;
+		private final int[] m_corruptedBlocks;
+
+		private Result(Lz4BlockIndex index, int checksummedCount, int[] corruptedBlocks) {
+			m_index = index;
+			m_checksummedCount = checksummedCount;
+			m_corruptedBlocks = corruptedBlocks;
+		}
+
+		public boolean isValid() {
+			return m_corruptedBlocks.length == 0;
+		}
+
+		public Lz4BlockIndex getIndex() {
+			return m_index;
+		}
+
+		public int getBlockCount() {
+			return m_index.getBlockCount();
+		}
+
+		/**
+		 * 체크섬이 기록된 블럭의 수를 반환한다.
+		 *
+		 * @return	체크섬이 기록된 블럭 수.
+		 */
+		public int getChecksummedBlockCount() {
+			return m_checksummedCount;
+		}
+
+		/**
+		 * 손상된 블럭들의 번호를 오름차순으로 반환한다.
+		 *
+		 * @return	손상된 블럭 번호 배열.
+		 */
+		public int[] getCorruptedBlocks() {
+			return m_corruptedBlocks.clone();
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s: blocks=%d, checksummed=%d, corrupted=%d",
+									isValid() ? "valid" : "corrupted", getBlockCount(),
+									m_checksummedCount, m_corruptedBlocks.length);
+		}
+	}
+}
@@ -0,0 +1,309 @@
+package utils.config.json;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.gson.JsonParseException;
+
+import io.reactivex.rxjava3.observers.TestObserver;
+
+import utils.config.ConfigNameIndex;
+import utils.config.ConfigNode;
+import utils.config.ConfigPath;
+
+/**
+ * 
+ * @author Kang-Woo Lee (ETRI)
+ */
+public class JsonConfigurationTest {
+	private static final String CONFIG = "{"
+			+ "\"server\": {\"name\": \"main\", \"port\": 8080,"
+			+ "             \"hosts\": [\"h1\", \"h2\"],"
+			+ "             \"matrix\": [[1, 2], [3, 4]]},"
+			+ "\"database\": {\"pool\": {\"size\": 16}, \"name\": \"db\"}"
+			+ "}";
+	
+	private JsonConfiguration m_config;
+	
+	@Before
+	public void setup() {
+		m_config = JsonConfiguration.load(CONFIG);
+	}
+	
+	@Test
+	public void test01() throws Exception {
+		Assert.assertEquals(8080, m_config.traverse("server/port").asInt());
+		Assert.assertEquals(8080, m_config.traverse("/server/port").asInt());
+		Assert.assertEquals("h2", m_config.traverse("server/hosts[1]").asString());
+		Assert.assertEquals(4, m_config.traverse("server/matrix[1][1]").asInt());
+		Assert.assertEquals(16, m_config.traverse("@pool/size").asInt());
+		Assert.assertEquals("main", m_config.traverse("@pool/../../server/name").asString());
+		Assert.assertEquals(16, m_config.traverse(" database / ./ pool/size ").asInt());
+		
+		Assert.assertTrue(m_config.traverse("server/timeout").isMissing());
+		Assert.assertTrue(m_config.traverse("@nothing/size").isMissing());
+		
+		ConfigNode server = m_config.traverse("server");
+		Assert.assertEquals(8080, server.traverse("port").asInt());
+		Assert.assertEquals(16, server.traverse("/database/pool/size").asInt());
+		
+		try {
+			m_config.traverse("@name");
+			Assert.fail("ambiguous '@' anchor should be rejected");
+		}
+		catch ( IllegalArgumentException expected ) { }
+		try {
+			m_config.traverse("server/hosts[1");
+			Assert.fail("unmatched [] should be rejected");
+		}
+		catch ( IllegalArgumentException expected ) { }
+	}
+	
+	@Test
+	public void test02() throws Exception {
+		ConfigPath path = ConfigPath.compile("server/hosts[0]");
+		Assert.assertSame(path, ConfigPath.compile("server/hosts[0]"));
+		Assert.assertEquals("h1", m_config.getRoot().traverse(path).asString());
+		
+		// 설정 객체를 통한 경로 탐색 결과는 캐시된다.
+		ConfigNode node = m_config.traverse("server/hosts[0]");
+		Assert.assertSame(node, m_config.traverse("server/hosts[0]"));
+		Assert.assertSame(node, m_config.traverse(path));
+	}
+	
+	@Test
+	public void test03() throws Exception {
+		Assert.assertEquals(2, m_config.findConfigByName("name").size());
+		Assert.assertEquals(1, m_config.findConfigByName("size").size());
+		Assert.assertTrue(m_config.findConfigByName("nothing").isEmpty());
+		Assert.assertSame(m_config.getRoot(), m_config.findConfigByName("").iterator().next());
+		
+		// 노드에서의 검색도 설정 객체의 색인을 이용한다.
+		ConfigNode pool = m_config.traverse("database/pool");
+		Assert.assertEquals(m_config.findConfigByName("pool"), pool.findConfigByName("pool"));
+		Assert.assertEquals(ConfigNameIndex.scan(m_config.getRoot(), "name").size(),
+							m_config.findConfigByName("name").size());
+	}
+	
+	@Test
+	public void test04() throws Exception {
+		ConfigNode server = m_config.getRoot().get("server");
+		Assert.assertSame(server, m_config.getRoot().get("server"));
+		Assert.assertSame(server.get("hosts").get(1), server.get("hosts").get(1));
+		Assert.assertSame(server.names(), server.names());
+		Assert.assertEquals(Arrays.asList("name", "port", "hosts", "matrix"),
+							new ArrayList<>(server.names()));
+		
+		Assert.assertEquals("server.hosts[1]", server.get("hosts").get(1).getPath());
+		Assert.assertSame(server, server.get("port").getParent());
+		Assert.assertTrue(server.get("timeout").isMissing());
+		Assert.assertEquals("server.timeout", server.get("timeout").getPath());
+	}
+	
+	@Test
+	public void test05() throws Exception {
+		String json = "{\"service\": {"
+				+ "  \"name\": \"gateway\", \"port\": 9090, \"mode\": \"ACTIVE\","
+				+ "  \"timeout\": 5000, \"home\": \"/tmp/gw\", \"weights\": [1, 2, 3],"
+				+ "  \"tags\": [\"a\", \"b\"], \"pool\": {\"size\": 8, \"shares\": [0.5, 1.5]},"
+				+ "  \"routes\": [{\"size\": 1}, {\"size\": 2}],"
+				+ "  \"limits\": {\"read\": 10, \"write\": 20}"
+				+ "}}";
+		JsonConfiguration config = JsonConfiguration.load(json);
+		
+		ServiceConfig service = config.traverse("service").bind(ServiceConfig.class);
+		Assert.assertEquals("gateway", service.m_name);
+		Assert.assertEquals(9090, service.m_port);
+		Assert.assertEquals(Mode.ACTIVE, service.m_mode);
+		Assert.assertEquals(Duration.ofSeconds(5), service.m_timeout);
+		Assert.assertEquals(new File("/tmp/gw"), service.m_home);
+		Assert.assertArrayEquals(new int[] {1, 2, 3}, service.m_weights);
+		Assert.assertEquals(Arrays.asList("a", "b"), service.m_tags);
+		Assert.assertEquals(8, service.m_pool.m_size);
+		Assert.assertArrayEquals(new double[] {0.5, 1.5}, service.m_pool.m_shares, 0);
+		Assert.assertEquals(2, service.m_routes[1].m_size);
+		Assert.assertEquals(Integer.valueOf(20), service.m_limits.get("write"));
+		Assert.assertEquals(3, service.m_retries);		// 설정되지 않은 필드는 초기 값을 유지한다.
+		
+		try {
+			config.traverse("service/name").bind(PoolConfig.class);
+			Assert.fail("type mismatch should be detected");
+		}
+		catch ( IllegalStateException expected ) { }
+	}
+	
+	@Test
+	public void test06() throws Exception {
+		String json = "{\"config_variables\": {\"base\": \"/data\", \"logs\": \"${base}/logs\"},"
+				+ " \"dirs\": {\"home\": \"${base}/home\", \"log\": \"${logs}/app\", \"tmp\": \"/tmp\"}}";
+		JsonConfiguration config = JsonConfiguration.load(json);
+		ConfigNode home = config.traverse("dirs/home");
+		ConfigNode log = config.traverse("dirs/log");
+		
+		String homeStr = home.asString();
+		Assert.assertEquals("/data/home", homeStr);
+		Assert.assertSame(homeStr, home.asString());
+		Assert.assertEquals("/data/logs/app", log.asString());
+		Assert.assertEquals("/tmp", config.traverse("dirs/tmp").asString());
+		
+		// 참조하지 않는 변수의 변경은 치환 결과에 영향을 주지 않는다.
+		config.addVariable("other", "x");
+		Assert.assertSame(homeStr, home.asString());
+		
+		config.addVariable("base", "/var");
+		Assert.assertEquals("/var/home", home.asString());
+		Assert.assertEquals("/data/logs/app", log.asString());
+		
+		config.addVariable("logs", "${base}/log2");
+		Assert.assertEquals("/var/log2/app", log.asString());
+	}
+	
+	@Test
+	public void test07() throws Exception {
+		File file = File.createTempFile("config", ".json");
+		try {
+			Files.write(file.toPath(), "{\"pool\": {\"size\": 8, \"name\": \"p\"}, \"hosts\": [\"h1\"]}"
+											.getBytes(StandardCharsets.UTF_8));
+			try ( JsonConfigurationWatcher watcher = JsonConfigurationWatcher.watch(file) ) {
+				JsonConfiguration config = watcher.getConfiguration();
+				Assert.assertEquals(8, config.traverse("pool/size").asInt());
+				
+				TestObserver<Set<String>> changes = watcher.observeChanges().test();
+				Files.write(file.toPath(), "{\"pool\": {\"size\": 16, \"name\": \"p\"}, \"hosts\": [\"h1\", \"h2\"]}"
+												.getBytes(StandardCharsets.UTF_8));
+				changes.awaitCount(1);
+				changes.assertValue(new HashSet<>(Arrays.asList("pool.size", "hosts")));
+				Assert.assertEquals(16, config.traverse("pool/size").asInt());
+				Assert.assertEquals(2, config.traverse("hosts").size());
+				
+				// 값의 변경이 없는 적재는 발행되지 않는다.
+				Assert.assertTrue(watcher.reload().isEmpty());
+			}
+		}
+		finally {
+			file.delete();
+		}
+	}
+	
+	@Test
+	public void test08() throws Exception {
+		String json = "\uFEFF{\n"
+				+ "  \"config_variables\": {\"root\": \"/srv\"},\n"
+				+ "  \"routes\": [{\"path\": \"/a{1}\", \"to\": \"${root}/a\"}, {\"path\": \"/b]\\\"\"}],\n"
+				+ "  \"\\u0061lias\" : \"\uD55C\uAE00,}\" ,\n"
+				+ "  \"broken\": {\"a\" 1},\n"
+				+ "  \"count\": 42\n"
+				+ "}";
+		File file = File.createTempFile("config", ".json");
+		try {
+			Files.write(file.toPath(), json.getBytes(StandardCharsets.UTF_8));
+			
+			JsonConfiguration config = JsonConfiguration.loadLazily(file);
+			ConfigNode root = config.getRoot();
+			Assert.assertEquals(Arrays.asList("config_variables", "routes", "alias", "broken", "count"),
+								new ArrayList<>(root.names()));
+			Assert.assertEquals(42, config.traverse("count").asInt());
+			Assert.assertEquals("/a{1}", config.traverse("routes[0]/path").asString());
+			Assert.assertEquals("/srv/a", config.traverse("routes[0]/to").asString());
+			Assert.assertEquals("/b]\"", config.traverse("routes[1]/path").asString());
+			Assert.assertEquals("\uD55C\uAE00,}", config.traverse("alias").asString());
+			Assert.assertTrue(root.has("broken"));
+			Assert.assertTrue(config.traverse("missing").isMissing());
+			
+			// 잘못된 section은 접근하기 전까지는 분석되지 않는다.
+			try {
+				config.traverse("broken/a").asInt();
+				Assert.fail("malformed section should be detected on access");
+			}
+			catch ( JsonParseException expected ) { }
+		}
+		finally {
+			file.delete();
+		}
+	}
+	
+	@Test
+	public void test09() throws Exception {
+		File file = File.createTempFile("config", ".json");
+		try {
+			Files.write(file.toPath(), ("{\"config_variables\": {\"base\": \"/a\"},"
+										+ " \"dirs\": {\"home\": \"${base}/home\", \"work\": \"${base}/work\"}}")
+										.getBytes(StandardCharsets.UTF_8));
+			JsonConfiguration config = JsonConfiguration.load(file);
+			ConfigNode prevHome = config.traverse("dirs/home");
+			ConfigNode prevWork = config.traverse("dirs/work");
+			Assert.assertEquals("/a/home", prevHome.asString());
+			
+			Files.write(file.toPath(), ("{\"config_variables\": {\"base\": \"/b\"},"
+										+ " \"dirs\": {\"home\": \"${base}/home\", \"work\": \"${base}/work\"}}")
+										.getBytes(StandardCharsets.UTF_8));
+			Set<String> changed = config.reload(file);
+			
+			// 변수 값의 변경으로 치환 결과가 바뀐 노드도 변경 경로에 포함된다.
+			Assert.assertEquals(new HashSet<>(Arrays.asList("config_variables.base", "dirs.home", "dirs.work")),
+								changed);
+			Assert.assertEquals("/b/home", config.traverse("dirs/home").asString());
+			Assert.assertNotSame(prevHome, config.traverse("dirs/home"));
+			
+			// 이전 트리의 노드는 교체 이후에 처음 치환되더라도 이전 변수 값을 사용한다.
+			Assert.assertEquals("/a/home", prevHome.asString());
+			Assert.assertEquals("/a/work", prevWork.asString());
+		}
+		finally {
+			file.delete();
+		}
+	}
+	
+	@Test
+	public void test10() throws Exception {
+		// 플랫폼 기본 문자셋과 관계없이 설정 파일은 UTF-8로 읽고 쓴다.
+		File file = File.createTempFile("config", ".json");
+		try {
+			Files.write(file.toPath(), "\uFEFF{\"name\": \"\uD55C\uAE00\"}".getBytes(StandardCharsets.UTF_8));
+			
+			JsonConfiguration config = JsonConfiguration.load(file);
+			Assert.assertEquals("\uD55C\uAE00", config.traverse("name").asString());
+			Assert.assertEquals("\uD55C\uAE00", JsonConfiguration.loadLazily(file).traverse("name").asString());
+			
+			config.write("\uAC12", file);
+			Assert.assertEquals("\"\uAC12\"", new String(Files.readAllBytes(file.toPath()),
+															StandardCharsets.UTF_8));
+		}
+		finally {
+			file.delete();
+		}
+	}
+	
+	enum Mode { ACTIVE, STANDBY }
+	
+	static class PoolConfig {
+		private int m_size;
+		private double[] m_shares;
+	}
+	
+	static class ServiceConfig {
+		private String m_name;
+		private int m_port;
+		private Mode m_mode;
+		private Duration m_timeout;
+		private File m_home;
+		private int[] m_weights;
+		private List<String> m_tags;
+		private PoolConfig m_pool;
+		private PoolConfig[] m_routes;
+		private Map<String,Integer> m_limits;
+		private int m_retries = 3;
+	}
+}
@@ -0,0 +1,103 @@
+package utils.config.snapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import utils.config.ConfigNode;
+import utils.config.Configuration;
+import utils.config.json.JsonConfiguration;
+
+/**
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+public class ConfigSnapshotTest {
+	private static final String CONFIG = "{"
+			+ "\"config_variables\": {\"home\": \"/srv\"},"
+			+ "\"server\": {\"name\": \"main\", \"port\": 8080, \"ratio\": 0.75, \"secure\": true,"
+			+ "            \"dir\": \"${home}/main\", \"hosts\": [\"h1\", \"h2\"],"
+			+ "            \"matrix\": [[1, 2], [3, 4]]},"
+			+ "\"database\": {\"pool\": {\"size\": 16}, \"name\": \"main\", \"big\": 12345678901234}"
+			+ "}";
+
+	private JsonConfiguration m_json;
+	private File m_file;
+
+	@Before
+	public void setup() throws IOException {
+		m_json = JsonConfiguration.load(CONFIG);
+		m_file = File.createTempFile("config", ".snapshot");
+	}
+
+	@After
+	public void tearDown() {
+		m_file.delete();
+	}
+
+	@Test
+	public void test01() throws Exception {
+		ConfigSnapshot.write(m_json, m_file, false);
+		verify(ConfigSnapshot.load(m_file));
+	}
+
+	@Test
+	public void test02() throws Exception {
+		ConfigSnapshot.write(m_json, m_file, true);
+		verify(ConfigSnapshot.load(m_file));
+	}
+
+	@Test(expected = IOException.class)
+	public void test03() throws Exception {
+		Files.write(m_file.toPath(), CONFIG.getBytes());
+		ConfigSnapshot.load(m_file);
+	}
+
+	@Test
+	public void test04() throws Exception {
+		ConfigSnapshot.write(m_json, m_file, false);
+		ConfigSnapshot snapshot = ConfigSnapshot.load(m_file);
+		
+		File jsonFile = File.createTempFile("value", ".json");
+		try {
+			snapshot.write(Arrays.asList(1, 2), jsonFile);
+			Assert.assertEquals("[1,2]", new String(Files.readAllBytes(jsonFile.toPath())));
+		}
+		finally {
+			jsonFile.delete();
+		}
+	}
+
+	private void verify(Configuration config) {
+		ConfigNode root = config.getRoot();
+		Assert.assertEquals(Arrays.asList("config_variables", "server", "database"),
+							new ArrayList<>(root.names()));
+
+		ConfigNode server = config.traverse("server");
+		Assert.assertTrue(server.isMap());
+		Assert.assertEquals("main", server.get("name").asString());
+		Assert.assertEquals(8080, server.get("port").asInt());
+		Assert.assertEquals("8080", server.get("port").asString());
+		Assert.assertEquals(0.75, server.get("ratio").asDouble(), 0);
+		Assert.assertTrue(server.get("secure").asBoolean());
+		Assert.assertEquals("/srv/main", server.get("dir").asString());
+		Assert.assertArrayEquals(new Object[] {"h1", "h2"}, server.get("hosts").getAsArray());
+		Assert.assertArrayEquals(new int[] {3, 4}, config.traverse("server/matrix[1]").getAsIntArray());
+		Assert.assertEquals(4, config.traverse("server/matrix[1][1]").asInt());
+		Assert.assertEquals("server.matrix[1][1]", config.traverse("server/matrix[1][1]").getPath());
+		Assert.assertSame(server, config.traverse("server/hosts").getParent());
+
+		Assert.assertEquals(16, config.traverse("database/pool/size").asInt());
+		Assert.assertEquals(12345678901234L, config.traverse("database/big").asLong());
+		Assert.assertTrue(config.traverse("database/missing").isMissing());
+		Assert.assertEquals(2, config.findConfigByName("name").size());
+		Assert.assertEquals(16, config.traverse("@pool/size").asInt());
+	}
+}
@@ -1,8 +1,23 @@
 package utilsx.io;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 
 import org.junit.Assert;
 import org.junit.Before;
@@ -10,8 +25,21 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import net.jpountz.lz4.LZ4Exception;
+
 import utils.io.IOUtils;
+import utils.io.Lz4BlockIndex;
+import utils.io.Lz4BufferPool;
+import utils.io.Lz4CompressOptions;
 import utils.io.Lz4Compressions;
+import utils.io.Lz4Dictionary;
+import utils.io.Lz4Flowables;
+import utils.io.Lz4Metrics;
+import utils.io.Lz4RandomAccessReader;
+import utils.io.Lz4Split;
+import utils.io.Lz4Verifier;
 
 
 /**
@@ -46,4 +74,600 @@ public class Lz4CompressTest {
 			Assert.assertEquals(i, buffer2.getInt());
 		}
 	}
+	
+	@Test
+	public void test02() throws Exception {
+		byte[] bytes = newIntSequence(COUNT);
+		
+		InputStream cin = Lz4Compressions.compressParallel(new ByteArrayInputStream(bytes), 256, 4, 3);
+		byte[] compressed = IOUtils.toBytes(cin);
+		cin.close();
+		
+		InputStream in = Lz4Compressions.decompress(new ByteArrayInputStream(compressed));
+		byte[] restored = IOUtils.toBytes(in);
+		Assert.assertArrayEquals(bytes, restored);
+	}
+	
+	@Test
+	public void test03() throws Exception {
+		byte[] bytes = newIntSequence(COUNT);
+		
+		InputStream cin = Lz4Compressions.compress(new ByteArrayInputStream(bytes), 256);
+		byte[] compressed = IOUtils.toBytes(cin);
+		
+		try ( InputStream in = Lz4Compressions.decompressParallel(new ByteArrayInputStream(compressed), 4, 3) ) {
+			byte[] restored = IOUtils.toBytes(in);
+			Assert.assertArrayEquals(bytes, restored);
+		}
+	}
+	
+	@Test
+	public void test04() throws Exception {
+		ByteBuffer src = ByteBuffer.allocateDirect(4 * COUNT);
+		for ( int i =0; i < COUNT; ++i ) {
+			src.putInt(i);
+		}
+		src.flip();
+		
+		ByteBuffer compressed = Lz4Compressions.compress(src, 1024);
+		Assert.assertTrue(compressed.isDirect());
+		Assert.assertEquals(4 * COUNT, Lz4Compressions.decompressedLength(compressed));
+		
+		byte[] bytes = new byte[compressed.remaining()];
+		compressed.duplicate().get(bytes);
+		InputStream in = Lz4Compressions.decompress(new ByteArrayInputStream(bytes));
+		ByteBuffer buffer = ByteBuffer.wrap(IOUtils.toBytes(in));
+		for ( int i =0; i < COUNT; ++i ) {
+			Assert.assertEquals(i, buffer.getInt());
+		}
+		
+		ByteBuffer restored = ByteBuffer.allocate(4 * COUNT);
+		Lz4Compressions.decompress(compressed, restored);
+		restored.flip();
+		for ( int i =0; i < COUNT; ++i ) {
+			Assert.assertEquals(i, restored.getInt());
+		}
+	}
+	
+	@Test
+	public void test05() throws Exception {
+		byte[] bytes = newIntSequence(COUNT);
+		
+		File rawFile = File.createTempFile("lz4_", ".raw");
+		File compressedFile = File.createTempFile("lz4_", ".lz4");
+		File restoredFile = File.createTempFile("lz4_", ".restored");
+		try {
+			Files.write(rawFile.toPath(), bytes);
+			
+			long size = Lz4Compressions.compress(rawFile, compressedFile, 1024);
+			Assert.assertEquals(compressedFile.length(), size);
+			
+			long restoredSize = Lz4Compressions.decompress(compressedFile, restoredFile);
+			Assert.assertEquals(bytes.length, restoredSize);
+			Assert.assertArrayEquals(bytes, Files.readAllBytes(restoredFile.toPath()));
+		}
+		finally {
+			rawFile.delete();
+			compressedFile.delete();
+			restoredFile.delete();
+		}
+	}
+	
+	@Test
+	public void test06() throws Exception {
+		byte[] bytes = newIntSequence(COUNT);
+		
+		File compressedFile = File.createTempFile("lz4_", ".lz4");
+		try {
+			InputStream cin = Lz4Compressions.compress(new ByteArrayInputStream(bytes), 256, true);
+			Files.write(compressedFile.toPath(), IOUtils.toBytes(cin));
+			
+			try ( Lz4RandomAccessReader reader = Lz4RandomAccessReader.open(compressedFile) ) {
+				Assert.assertEquals(bytes.length, reader.length());
+				Assert.assertEquals(16, reader.getIndex().getBlockCount());
+				
+				ByteBuffer part = ByteBuffer.wrap(reader.read(4 * 500, 4 * 100));
+				for ( int i =500; i < 600; ++i ) {
+					Assert.assertEquals(i, part.getInt());
+				}
+				Assert.assertEquals(8, reader.read(bytes.length - 8, 100).length);
+				Assert.assertEquals(-1, reader.read(bytes.length, new byte[10], 0, 10));
+			}
+			
+			// 색인 트레일러는 일반 압축 해제 과정에서는 무시되어야 한다.
+			InputStream in = Lz4Compressions.decompress(new FileInputStream(compressedFile));
+			Assert.assertArrayEquals(bytes, IOUtils.toBytes(in));
+		}
+		finally {
+			compressedFile.delete();
+		}
+	}
+	
+	@Test
+	public void test07() throws Exception {
+		byte[] bytes = newIntSequence(COUNT);
+		
+		Lz4BufferPool pool = Lz4Compressions.getBufferPool();
+		for ( int i =0; i < 3; ++i ) {
+			long hits = pool.getHitCount();
+			
+			byte[] compressed;
+			try ( InputStream cin = Lz4Compressions.compress(new ByteArrayInputStream(bytes), 512) ) {
+				compressed = IOUtils.toBytes(cin);
+			}
+			try ( InputStream in = Lz4Compressions.decompress(new ByteArrayInputStream(compressed)) ) {
+				// readAllBytes()는 블럭 버퍼를 사용하지 않으므로 transferTo()로 읽는다.
+				ByteArrayOutputStream baos = new ByteArrayOutputStream();
+				in.transferTo(baos);
+				Assert.assertArrayEquals(bytes, baos.toByteArray());
+			}
+			
+			if ( i > 0 ) {
+				Assert.assertTrue(pool.getHitCount() >= hits + 4);
+			}
+		}
+		
+		// 두번째 블럭의 압축 길이를 블럭 크기로 가능한 최대 압축 길이보다 크게 변경한다.
+		byte[] compressed = IOUtils.toBytes(Lz4Compressions.compress(new ByteArrayInputStream(bytes), 512));
+		ByteBuffer header = ByteBuffer.wrap(compressed);
+		int second = 8 + (header.getInt(4) & ((1 << 25) - 1));
+		header.putInt(second + 4, 1024 * 1024);
+		try ( InputStream in = Lz4Compressions.decompress(new ByteArrayInputStream(compressed)) ) {
+			in.transferTo(new ByteArrayOutputStream());
+			Assert.fail("corrupted block header should be detected");
+		}
+		catch ( LZ4Exception expected ) { }
+	}
+	
+	@Test
+	public void test08() throws Exception {
+		byte[] bytes = newIntSequence(COUNT);
+		
+		byte[] compressed = Lz4Compressions.compressBlock(bytes);
+		Assert.assertEquals(bytes.length, Lz4Compressions.decompressedBlockLength(compressed, 0));
+		Assert.assertArrayEquals(bytes, Lz4Compressions.decompressBlock(compressed));
+		
+		byte[] target = new byte[Lz4Compressions.maxCompressedBlockLength(100) + 10];
+		int nbytes = Lz4Compressions.compressBlock(bytes, 40, 100, target, 10);
+		byte[] restored = new byte[100];
+		Lz4Compressions.decompressBlock(target, 10, restored, 0);
+		Assert.assertArrayEquals(Arrays.copyOfRange(bytes, 40, 140), restored);
+		Assert.assertTrue(nbytes <= target.length - 10);
+		
+		Assert.assertEquals(0, Lz4Compressions.decompressBlock(Lz4Compressions.compressBlock(new byte[0])).length);
+		
+		// 손상된 길이 prefix: 음수 길이와 남은 압축 데이터로 표현할 수 없는 길이
+		byte[] negative = new byte[] {(byte)0xFF, (byte)0xFF, (byte)0xFF, (byte)0xFF, 0x0F, 0x00};
+		byte[] tooLarge = new byte[] {(byte)0xFF, (byte)0xFF, (byte)0xFF, 0x7F, 0x00};
+		for ( byte[] corrupted: Arrays.asList(negative, tooLarge) ) {
+			try {
+				Lz4Compressions.decompressBlock(corrupted);
+				Assert.fail("corrupted length prefix should be detected");
+			}
+			catch ( LZ4Exception expected ) { }
+			try {
+				Lz4Compressions.decompressBlock(corrupted, 0, new byte[16], 0);
+				Assert.fail("corrupted length prefix should be detected");
+			}
+			catch ( LZ4Exception expected ) { }
+		}
+		
+		try {
+			Lz4Compressions.compressBlock(bytes, 0, 100, new byte[50], 0);
+			Assert.fail("insufficient target space should be detected");
+		}
+		catch ( IndexOutOfBoundsException expected ) { }
+	}
+	
+	@Test
+	public void test09() throws Exception {
+		byte[] bytes = newIntSequence(COUNT);
+		
+		InputStream cin = Lz4Compressions.compress(new ByteArrayInputStream(bytes), 1024,
+													Lz4Compressions.DEFAULT_HC_LEVEL);
+		byte[] compressed = IOUtils.toBytes(cin);
+		Assert.assertEquals(Lz4Compressions.DEFAULT_HC_LEVEL, ByteBuffer.wrap(compressed).getInt() >>> 25);
+		
+		InputStream in = Lz4Compressions.decompress(new ByteArrayInputStream(compressed));
+		Assert.assertArrayEquals(bytes, IOUtils.toBytes(in));
+	}
+	
+	@Test
+	public void test10() throws Exception {
+		byte[] bytes = new byte[64 * 1024];
+		new Random(0).nextBytes(bytes);
+		
+		Lz4CompressOptions opts = Lz4CompressOptions.create().blockSize(1024).skipIncompressible(true);
+		InputStream cin = Lz4Compressions.compress(new ByteArrayInputStream(bytes), opts);
+		byte[] compressed = IOUtils.toBytes(cin);
+		Assert.assertEquals(bytes.length + 64 * 8, compressed.length);
+		
+		InputStream in = Lz4Compressions.decompress(new ByteArrayInputStream(compressed));
+		Assert.assertArrayEquals(bytes, IOUtils.toBytes(in));
+		
+		// 블럭 헤더의 길이 필드에 담을 수 없는 블럭 크기는 압축시 거부된다.
+		try {
+			Lz4Compressions.compress(ByteBuffer.wrap(bytes), Lz4Compressions.MAX_BLOCK_SIZE + 1);
+			Assert.fail("block-size beyond the header length field should be rejected");
+		}
+		catch ( IllegalArgumentException expected ) { }
+	}
+	
+	@Test
+	public void test11() throws Exception {
+		byte[] bytes = new byte[100 * 1024];
+		for ( int i =0; i < bytes.length; ++i ) {
+			bytes[i] = (byte)(i % 97);
+		}
+		
+		// 매 호출마다 데이터가 없는 것처럼 0을 반환하는 non-blocking 원본 채널
+		ReadableByteChannel src = new ReadableByteChannel() {
+			private final ByteBuffer m_data = ByteBuffer.wrap(bytes);
+			private boolean m_ready = false;
+			
+			@Override
+			public int read(ByteBuffer dst) {
+				if ( !m_data.hasRemaining() ) {
+					return -1;
+				}
+				if ( !(m_ready = !m_ready) ) {
+					return 0;
+				}
+				
+				ByteBuffer slice = m_data.duplicate();
+				slice.limit(slice.position() + Math.min(Math.min(dst.remaining(), 3000), m_data.remaining()));
+				int nbytes = slice.remaining();
+				dst.put(slice);
+				m_data.position(m_data.position() + nbytes);
+				return nbytes;
+			}
+			@Override public boolean isOpen() { return true; }
+			@Override public void close() { }
+		};
+		
+		Lz4CompressOptions opts = Lz4CompressOptions.create().blockSize(8 * 1024);
+		ReadableByteChannel cch = Lz4Compressions.compress(src, opts);
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		ByteBuffer buf = ByteBuffer.allocate(1000);
+		int zeroCount = 0;
+		int nread;
+		while ( (nread = cch.read(buf)) >= 0 ) {
+			if ( nread == 0 ) {
+				++zeroCount;
+			}
+			baos.write(buf.array(), 0, buf.position());
+			buf.clear();
+		}
+		cch.close();
+		Assert.assertTrue(zeroCount > 0);
+		
+		InputStream in = Lz4Compressions.decompress(new ByteArrayInputStream(baos.toByteArray()));
+		Assert.assertArrayEquals(bytes, IOUtils.toBytes(in));
+	}
+	
+	@Test
+	public void test12() throws Exception {
+		byte[] bytes = new byte[200 * 1024 + 123];
+		for ( int i =0; i < bytes.length; ++i ) {
+			bytes[i] = (byte)(i % 251);
+		}
+		
+		Lz4CompressOptions opts = Lz4CompressOptions.create().blockSize(16 * 1024).writeIndex(true);
+		byte[] expected = IOUtils.toBytes(Lz4Compressions.compress(new ByteArrayInputStream(bytes), opts));
+		
+		Flowable<ByteBuffer> src = Flowable.range(0, (bytes.length + 999) / 1000)
+											.map(i -> ByteBuffer.wrap(bytes, i * 1000,
+																Math.min(1000, bytes.length - i * 1000)));
+		byte[] compressed = toBytes(src.compose(Lz4Flowables.compress(opts)));
+		Assert.assertArrayEquals(expected, compressed);
+		
+		byte[] compressed2 = toBytes(src.compose(Lz4Flowables.compressParallel(opts, Schedulers.computation(), 4)));
+		Assert.assertArrayEquals(expected, compressed2);
+		
+		Flowable<ByteBuffer> csrc = Flowable.range(0, (compressed.length + 776) / 777)
+											.map(i -> ByteBuffer.wrap(compressed, i * 777,
+																Math.min(777, compressed.length - i * 777)));
+		Assert.assertArrayEquals(bytes, toBytes(csrc.compose(Lz4Flowables.decompress())));
+	}
+	
+	@Test
+	public void test13() throws Exception {
+		byte[] bytes = newIntSequence(COUNT);
+		
+		File compressedFile = File.createTempFile("lz4_", ".lz4");
+		try {
+			Lz4CompressOptions opts = Lz4CompressOptions.create().blockSize(256).checksum(true);
+			InputStream cin = Lz4Compressions.compress(new ByteArrayInputStream(bytes), opts);
+			byte[] compressed = IOUtils.toBytes(cin);
+			Files.write(compressedFile.toPath(), compressed);
+			
+			Lz4Verifier.Result result = Lz4Verifier.verify(compressedFile, 2);
+			Assert.assertTrue(result.isValid());
+			Assert.assertEquals(16, result.getChecksummedBlockCount());
+			
+			InputStream in = Lz4Compressions.decompress(new ByteArrayInputStream(compressed));
+			Assert.assertArrayEquals(bytes, IOUtils.toBytes(in));
+			
+			// 4번째 블럭의 데이터를 손상시킨다.
+			long offset = result.getIndex().getBlockOffset(3) + 8 + 10;
+			compressed[(int)offset] ^= 0x5A;
+			Files.write(compressedFile.toPath(), compressed);
+			
+			result = Lz4Verifier.verify(compressedFile);
+			Assert.assertFalse(result.isValid());
+			Assert.assertArrayEquals(new int[] {3}, result.getCorruptedBlocks());
+			
+			try {
+				IOUtils.toBytes(Lz4Compressions.decompress(new ByteArrayInputStream(compressed)));
+				Assert.fail("checksum mismatch should be detected");
+			}
+			catch ( LZ4Exception expected ) { }
+		}
+		finally {
+			compressedFile.delete();
+		}
+	}
+	
+	@Test
+	public void test14() throws Exception {
+		Random rand = new Random(0);
+		List<byte[]> samples = new ArrayList<>();
+		for ( int i =0; i < 1000; ++i ) {
+			samples.add(newRecord(rand, i));
+		}
+		Lz4Dictionary dict = Lz4Dictionary.train(samples, 8 * 1024);
+		Assert.assertEquals(8 * 1024, dict.size());
+		Assert.assertEquals(dict.getId(), Lz4Dictionary.of(dict.getContent()).getId());
+		
+		long plainTotal = 0;
+		long dictTotal = 0;
+		for ( int i =0; i < 200; ++i ) {
+			byte[] record = newRecord(rand, 5000 + i);
+			byte[] compressed = Lz4Compressions.compressBlock(record, dict);
+			Assert.assertEquals(dict.getId(), Lz4Dictionary.getDictionaryId(compressed, 0));
+			Assert.assertArrayEquals(record, Lz4Compressions.decompressBlock(compressed, dict));
+			
+			plainTotal += Lz4Compressions.compressBlock(record).length;
+			dictTotal += compressed.length;
+		}
+		Assert.assertTrue(dictTotal * 2 < plainTotal);
+		
+		byte[] compressed = dict.compress(newRecord(rand, 0));
+		try {
+			Lz4Dictionary.of(new byte[] {1, 2, 3}).decompress(compressed);
+			Assert.fail("dictionary mismatch should be detected");
+		}
+		catch ( IllegalArgumentException expected ) { }
+		
+		// 손상된 길이 prefix: 음수, 압축 데이터로 표현할 수 없는 크기, 레코드 끝에서 잘린 prefix.
+		// 원래 prefix는 1 바이트이다.
+		Assert.assertTrue(compressed[4] >= 0);
+		byte[][] prefixes = new byte[][] {
+			{(byte)0xFF, (byte)0xFF, (byte)0xFF, (byte)0xFF, 0x0F},
+			{(byte)0xFF, (byte)0xFF, (byte)0xFF, (byte)0xFF, 0x07},
+		};
+		for ( byte[] prefix: prefixes ) {
+			byte[] corrupted = new byte[compressed.length - 1 + prefix.length];
+			System.arraycopy(compressed, 0, corrupted, 0, 4);
+			System.arraycopy(prefix, 0, corrupted, 4, prefix.length);
+			System.arraycopy(compressed, 5, corrupted, 4 + prefix.length, compressed.length - 5);
+			try {
+				dict.decompress(corrupted);
+				Assert.fail("corrupted length prefix should be detected");
+			}
+			catch ( LZ4Exception expected ) { }
+		}
+		byte[] truncated = Arrays.copyOf(compressed, 5);
+		truncated[4] = (byte)0x80;
+		try {
+			// 레코드 뒤에 데이터가 더 있어도 레코드 범위 밖은 읽지 않는다.
+			dict.decompress(Arrays.copyOf(truncated, 16), 0, truncated.length);
+			Assert.fail("truncated length prefix should be detected");
+		}
+		catch ( LZ4Exception expected ) { }
+		
+		// 손상된 압축 데이터는 LZ4Exception으로만 보고된다.
+		try {
+			dict.decompress(Arrays.copyOf(compressed, compressed.length - 1));
+			Assert.fail("truncated payload should be detected");
+		}
+		catch ( LZ4Exception expected ) { }
+		for ( int pos = 5; pos < compressed.length; ++pos ) {
+			for ( int value: new int[] {0x00, 0x0F, 0xF0, 0xFF} ) {
+				byte[] corrupted = compressed.clone();
+				corrupted[pos] = (byte)value;
+				try {
+					dict.decompress(corrupted);
+				}
+				catch ( LZ4Exception expected ) { }
+			}
+		}
+	}
+	
+	@Test
+	public void test15() throws Exception {
+		byte[] bytes = newIntSequence(COUNT);
+		
+		List<Lz4Metrics.Snapshot> closeds = new ArrayList<>();
+		Lz4Metrics.Listener listener = (name, metrics) -> closeds.add(metrics);
+		Lz4Metrics.addListener(listener);
+		try {
+			long globalBlocks = Lz4Metrics.global().snapshot().getCompressBlocks();
+			
+			InputStream cin = Lz4Compressions.compress(new ByteArrayInputStream(bytes), 256);
+			byte[] compressed = IOUtils.toBytes(cin);
+			Lz4Metrics.Snapshot metrics = Lz4Metrics.of(cin).snapshot();
+			Assert.assertEquals(16, metrics.getCompressBlocks());
+			Assert.assertEquals(bytes.length, metrics.getCompressInBytes());
+			Assert.assertEquals(compressed.length, metrics.getCompressOutBytes());
+			Assert.assertTrue(metrics.getCompressNanos() > 0);
+			Assert.assertTrue(Lz4Metrics.global().snapshot().getCompressBlocks() >= globalBlocks + 16);
+			
+			cin.close();
+			Assert.assertEquals(1, closeds.size());
+			Assert.assertEquals(16, closeds.get(0).getCompressBlocks());
+			
+			InputStream in = Lz4Compressions.decompress(new ByteArrayInputStream(compressed));
+			IOUtils.toBytes(in);
+			metrics = Lz4Metrics.of(in).snapshot();
+			Assert.assertEquals(16, metrics.getDecompressBlocks());
+			Assert.assertEquals(compressed.length, metrics.getDecompressInBytes());
+			Assert.assertEquals(bytes.length, metrics.getDecompressOutBytes());
+			Assert.assertTrue(metrics.getDecompressThroughput() > 0);
+			
+			ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			OutputStream cos = Lz4Compressions.toCompressedStream(baos, 256);
+			cos.write(bytes);
+			cos.close();
+			metrics = Lz4Metrics.of(cos).snapshot();
+			Assert.assertEquals(16, metrics.getCompressBlocks());
+			Assert.assertEquals(bytes.length, metrics.getCompressInBytes());
+			// 스트림 끝의 종료 표시 블럭 헤더(21 바이트)는 통계에 포함되지 않는다.
+			Assert.assertEquals(baos.size() - 21, metrics.getCompressOutBytes());
+			Assert.assertEquals(2, closeds.size());
+			
+			long globalIn = Lz4Metrics.global().snapshot().getCompressInBytes();
+			long globalOut = Lz4Metrics.global().snapshot().getDecompressOutBytes();
+			Assert.assertArrayEquals(bytes, Lz4Compressions.decompress(Lz4Compressions.compress(bytes)));
+			Assert.assertTrue(Lz4Metrics.global().snapshot().getCompressInBytes() >= globalIn + bytes.length);
+			Assert.assertTrue(Lz4Metrics.global().snapshot().getDecompressOutBytes() >= globalOut + bytes.length);
+		}
+		finally {
+			Lz4Metrics.removeListener(listener);
+		}
+	}
+	
+	@Test
+	public void test16() throws Exception {
+		byte[] bytes = newIntSequence(COUNT);
+		
+		File compressedFile = File.createTempFile("lz4_", ".lz4");
+		try {
+			Lz4CompressOptions opts = Lz4CompressOptions.create().blockSize(256).writeIndex(true);
+			InputStream cin = Lz4Compressions.compress(new ByteArrayInputStream(bytes), opts);
+			Files.write(compressedFile.toPath(), IOUtils.toBytes(cin));
+			
+			try ( FileChannel channel = FileChannel.open(compressedFile.toPath(), StandardOpenOption.READ) ) {
+				Lz4BlockIndex index = Lz4BlockIndex.of(channel);
+				List<Lz4Split> splits = index.split(3);
+				Assert.assertEquals(3, splits.size());
+				Assert.assertEquals(0, splits.get(0).getStartOffset());
+				Assert.assertEquals(index.getCompressedLength(), splits.get(2).getEndOffset());
+				
+				byte[] restored = new byte[bytes.length];
+				splits.parallelStream().forEach(split -> {
+					try ( InputStream in = split.open(channel) ) {
+						byte[] part = IOUtils.toBytes(in);
+						Assert.assertEquals(split.getRawLength(), part.length);
+						System.arraycopy(part, 0, restored, (int)split.getRawOffset(), part.length);
+					}
+					catch ( IOException e ) {
+						throw new UncheckedIOException(e);
+					}
+				});
+				Assert.assertArrayEquals(bytes, restored);
+				
+				ByteArrayOutputStream baos = new ByteArrayOutputStream();
+				index.split(1).get(0).blocks(channel).parallel()
+					.forEachOrdered(block -> baos.write(block.array(), 0, block.remaining()));
+				Assert.assertArrayEquals(bytes, baos.toByteArray());
+				
+				Assert.assertEquals(index.getBlockCount(), index.split(100).size());
+			}
+		}
+		finally {
+			compressedFile.delete();
+		}
+	}
+	
+	@Test
+	public void test17() throws Exception {
+		byte[] bytes = newIntSequence(COUNT);
+		
+		Lz4CompressOptions opts = Lz4CompressOptions.create().blockSize(256).writeIndex(true);
+		byte[] compressed = IOUtils.toBytes(Lz4Compressions.compress(new ByteArrayInputStream(bytes), opts));
+		
+		try ( InputStream in = Lz4Compressions.decompress(new ByteArrayInputStream(compressed)) ) {
+			Assert.assertEquals(10, in.read(new byte[10]));
+			ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			Assert.assertEquals(bytes.length - 10, in.transferTo(baos));
+			Assert.assertArrayEquals(Arrays.copyOfRange(bytes, 10, bytes.length), baos.toByteArray());
+			Assert.assertEquals(-1, in.read());
+		}
+		
+		try ( InputStream in = Lz4Compressions.decompress(new ByteArrayInputStream(compressed)) ) {
+			Assert.assertEquals(0, in.read());
+			Assert.assertArrayEquals(Arrays.copyOfRange(bytes, 1, bytes.length), in.readAllBytes());
+			Assert.assertEquals(0, in.readAllBytes().length);
+		}
+		
+		try ( InputStream in = Lz4Compressions.decompress(new ByteArrayInputStream(compressed)) ) {
+			// 현재 블럭의 일부, 중간의 블럭들 전체, 그리고 마지막 블럭의 일부를 건너뛴다.
+			Assert.assertEquals(4, in.skip(4));
+			Assert.assertEquals(4 * 600, in.skip(4 * 600));
+			Assert.assertEquals(601, new DataInputStream(in).readInt());
+			Assert.assertEquals(bytes.length - 4 * 602, in.skip(bytes.length));
+			Assert.assertEquals(0, in.skip(10));
+			Assert.assertEquals(-1, in.read());
+		}
+	}
+	
+	@Test
+	public void test18() throws Exception {
+		// 압축되지 않는 블럭들로 시작하여 압축 생략 상태에 들어간 뒤, 압축 가능한 블럭들로 바뀐다.
+		byte[] noise = new byte[256 * 20];
+		new Random(7).nextBytes(noise);
+		byte[] ints = newIntSequence(64 * 80);
+		byte[] bytes = Arrays.copyOf(noise, noise.length + ints.length);
+		System.arraycopy(ints, 0, bytes, noise.length, ints.length);
+		
+		Lz4CompressOptions opts = Lz4CompressOptions.create().blockSize(256).level(9).checksum(true)
+													.skipIncompressible(true).writeIndex(true);
+		byte[] serial = IOUtils.toBytes(Lz4Compressions.compress(new ByteArrayInputStream(bytes), opts));
+		
+		InputStream cin = Lz4Compressions.compressParallel(new ByteArrayInputStream(bytes), opts, 4, 3);
+		byte[] parallel = IOUtils.toBytes(cin);
+		cin.close();
+		Assert.assertArrayEquals(serial, parallel);
+		
+		InputStream in = Lz4Compressions.decompress(new ByteArrayInputStream(parallel));
+		Assert.assertArrayEquals(bytes, IOUtils.toBytes(in));
+		
+		// 압축이 진행 중인 상태에서 close하면 원본 스트림도 close된다.
+		boolean[] closed = new boolean[] {false};
+		InputStream src = new ByteArrayInputStream(bytes) {
+			@Override
+			public void close() throws IOException {
+				closed[0] = true;
+			}
+		};
+		cin = Lz4Compressions.compressParallel(src, opts, 4, 3);
+		Assert.assertEquals(10, cin.read(new byte[10]));
+		cin.close();
+		Assert.assertTrue(closed[0]);
+		Assert.assertEquals(-1, cin.read());
+	}
+	
+	private static byte[] newIntSequence(int count) {
+		byte[] bytes = new byte[4 * count];
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		for ( int i =0; i < count; ++i ) {
+			buffer.putInt(i);
+		}
+		return bytes;
+	}
+	
+	private static byte[] newRecord(Random rand, int id) {
+		return String.format("{\"id\":%d,\"name\":\"user-%d\",\"status\":\"%s\",\"score\":%.3f,"
+							+ "\"address\":{\"city\":\"Daejeon\",\"zip\":\"%05d\"}}",
+							id, rand.nextInt(1000), rand.nextBoolean() ? "active" : "inactive",
+							rand.nextDouble(), rand.nextInt(99999)).getBytes();
+	}
+	
+	private static byte[] toBytes(Flowable<ByteBuffer> flow) {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		flow.blockingForEach(buf -> baos.write(buf.array(), buf.arrayOffset() + buf.position(),
+												buf.remaining()));
+		return baos.toByteArray();
+	}
 }